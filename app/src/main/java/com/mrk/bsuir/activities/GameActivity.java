@@ -16,12 +16,28 @@ import androidx.appcompat.content.res.AppCompatResources;
 import androidx.appcompat.widget.AppCompatButton;
 
 import com.mrk.bsuir.R;
+import com.mrk.bsuir.exceptions.BitbaseException;
+import com.mrk.bsuir.exceptions.BookException;
+import com.mrk.bsuir.exceptions.TablebaseException;
+import com.mrk.bsuir.service.Bitbase;
 import com.mrk.bsuir.service.GameLogService;
 import com.mrk.bsuir.service.Action;
+import com.mrk.bsuir.service.GameNavigator;
+import com.mrk.bsuir.service.GameStatus;
 import com.mrk.bsuir.service.MoveService;
+import com.mrk.bsuir.service.ParallelSearch;
+import com.mrk.bsuir.service.PolyglotBook;
+import com.mrk.bsuir.service.Search;
+import com.mrk.bsuir.service.SearchResult;
+import com.mrk.bsuir.service.Tablebase;
+import com.mrk.bsuir.service.TranspositionTable;
+import com.mrk.bsuir.model.BitBoard;
 import com.mrk.bsuir.model.Board;
 import com.mrk.bsuir.model.Color;
+import com.mrk.bsuir.model.Move;
 import com.mrk.bsuir.model.Piece;
+import com.mrk.bsuir.model.PieceType;
+import com.mrk.bsuir.model.PositionSnapshot;
 import com.mrk.bsuir.model.impl.Bishop;
 import com.mrk.bsuir.model.impl.King;
 import com.mrk.bsuir.model.impl.Knight;
@@ -29,41 +45,116 @@ import com.mrk.bsuir.model.impl.Pawn;
 import com.mrk.bsuir.model.impl.Queen;
 import com.mrk.bsuir.model.impl.Rook;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class GameActivity extends AppCompatActivity implements View.OnClickListener {
 
     private Board board;
     private GameLogService logService;
+    private GameNavigator navigator;
     private MoveService moveService;
-    private boolean checkmate;
-    private boolean checkMove;
+    // Set by checkmate and by every draw, the board takes no more moves then
+    private boolean gameOver;
     private static final int PROMOTE_REQUEST_CODE = 1;
     private King playerKing;
-    private King enemyPlayerKing;
     private TextView checkmateText;
 
+    // Color of the computer opponent or null when both players are people
+    private Color computerColor;
+    private ParallelSearch runningSearch;
+    private TranspositionTable engineTable;
+    private final ExecutorService engineExecutor = Executors.newSingleThreadExecutor();
+    private static final long ENGINE_TIME_MILLIS = 1000L;
+
+    // Polyglot book, an optional file of the app
+    private static final String BOOK_FILE = "book.bin";
+    private PolyglotBook openingBook;
+    private final Random bookRandom = new Random();
+
+    // Endgame tables of the app files, written by TablebaseFile
+    private static final String TABLEBASE_DIRECTORY = "tablebases";
+    private Tablebase tablebase;
+
+    // Bitbases of the app resources, read and used by the engine thread only
+    private Bitbase bitbase;
+
+    // Check, checkmate and draws are found off the UI thread, the version tells stale answers
+    // apart
+    private final ExecutorService statusExecutor = Executors.newSingleThreadExecutor();
+    private Future<?> statusTask;
+    private int positionVersion;
+    // One core is left to the UI thread
+    private static final int ENGINE_THREADS =
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
     final List<Button> buttonList = new ArrayList<>(70);
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         this.board = new Board();
-        this.logService = new GameLogService(board);
-        this.moveService = new MoveService(board, logService);
+        this.logService = new GameLogService();
+        this.navigator = new GameNavigator(board, logService);
+        this.moveService = new MoveService(board);
         super.onCreate(savedInstanceState);
         setContentView(R.layout.main_game);
         ImageButton undoButton = findViewById(R.id.undo_button);
         undoButton.setOnClickListener(this);
+        // A long tap brings back the undone moves, until a new move is made
+        undoButton.setOnLongClickListener(view -> {
+            redoMove();
+            return true;
+        });
         AppCompatButton menuButton = findViewById(R.id.menu_button);
         menuButton.setOnClickListener(this);
         checkmateText = findViewById(R.id.checkmateText);
         checkmateText.setVisibility(View.INVISIBLE);
         initButtons();
         drawAllBoard();
+
+        String computer = getIntent().getStringExtra("computerColor");
+        if (computer != null) {
+            computerColor = computer.equals("White") ? Color.WHITE : Color.BLACK;
+            openingBook = openBook();
+            tablebase = openTablebase();
+            moveService.setTablebase(tablebase);
+            engineExecutor.execute(() -> bitbase = loadBitbase());
+        }
+        startComputerMoveIfNeeded();
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (runningSearch != null) {
+            runningSearch.stop();
+        }
+        engineExecutor.shutdownNow();
+        cancelGameStatus();
+        statusExecutor.shutdownNow();
+        if (openingBook != null) {
+            try {
+                openingBook.close();
+            } catch (IOException e) {
+                Log.w("ENGINE", "Cannot close the opening book", e);
+            }
+        }
+        if (tablebase != null) {
+            Log.i("ENGINE", "Tablebase probes: " + tablebase.getProbes() + ", average "
+                    + tablebase.getAverageProbeNanos() + " ns, cache hit rate "
+                    + tablebase.getCacheHitRate());
+            try {
+                tablebase.close();
+            } catch (IOException e) {
+                Log.w("ENGINE", "Cannot close the tablebase", e);
+            }
+        }
+        super.onDestroy();
     }
 
     private void initButtons() {
@@ -97,22 +188,19 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
             undoMove();
             return;
         } else if (view instanceof AppCompatButton) {
-            if (checkmate) {
+            // Until the status of the last move is known the game may already be over
+            if (gameOver || runningSearch != null || statusTask != null) {
                 return;
             }
             Point point = (Point) view.getTag();
-            checkMove = false;
 
             int x = point.x;
             int y = point.y;
 
             Piece pieceInHand = board.getCurrentPiece();
-            Color playerColor = logService.getCurrentMove() % 2 == 0
-                    ? Color.WHITE : Color.BLACK;
-            List<Action> actionList = new ArrayList<>();
+            Color playerColor = board.getSideToMove();
 
             playerKing = board.getKingOfThisColor(playerColor);
-            enemyPlayerKing = board.getKingOfAnotherColor(playerColor);
 
             if (pieceInHand == null) {
 
@@ -123,29 +211,18 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
 
             } else {
 
-                int startX = board.getPieceCords(pieceInHand)[0];
-                int startY = board.getPieceCords(pieceInHand)[1];
+                int startSquare = board.getPieceSquare(pieceInHand);
+                int startX = BitBoard.squareX(startSquare);
+                int startY = BitBoard.squareY(startSquare);
 
-                if (isKingUnderCheck(playerKing)) {
-                    if (moveService
-                            .onCheckAvailableMove(startX, startY, x, y, pieceInHand, playerKing)) {
-                        afterMove(startX, startY, x, y, pieceInHand, null, actionList);
-                    }
-                    board.setCurrentPiece(null);
-                } else {
+                // allowPieceMove answers full legality, so check does not need a separate branch
+                if (moveService.allowPieceMove(startX, startY, x, y, pieceInHand)) {
 
-                    if (moveService.allowPieceMove(startX, startY, x, y, pieceInHand)) {
-
-                        if (isEnPassant(pieceInHand, startX, x, y)) {
-                            actionList.add(Action.EN_PASSANT);
-                        } else if (pieceInHand instanceof King && Math.abs(startX - x) > 1) {
-                            actionList.add(x == 2 ? Action.LONG_CASTLING : Action.SHORT_CASTLING);
-                        } else if (ifPromotionRequired(pieceInHand, y, playerColor)) {
-                            openPromoteActivity(playerColor.getColor(), startX, x);
-                            return;
-                        }
-                        afterMove(startX, startY, x, y, pieceInHand, null, actionList);
+                    if (ifPromotionRequired(pieceInHand, y, playerColor)) {
+                        openPromoteActivity(playerColor.getColor(), startX, x);
+                        return;
                     }
+                    afterMove(startX, startY, x, y, pieceInHand, null);
                 }
                 board.setCurrentPiece(null);
             }
@@ -203,72 +280,204 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
         } else throw new RuntimeException("Cannot find piece drawable");
     }
 
-    public boolean isKingUnderCheck(King king) {
+    // The log keeps the encoded move, its notation is written only when it is shown
+    public void afterMove(int startX, int startY, int x, int y, Piece pieceInHand,
+                          Piece promotedPiece) {
 
-        int kingX = board.getPieceCords(king)[0];
-        int kingY = board.getPieceCords(king)[1];
-        king.setUnderCheck(moveService.isThisCellUnderAttack(kingX, kingY, king.getColor()));
+        playerKing.setUnderCheck(false);
 
-        return king.isUnderCheck();
-    }
+        int move = moveService.getMoveGenerator().findLegalMove(BitBoard.square(startX, startY),
+                BitBoard.square(x, y), pieceInHand.getColor());
+        if (move == Move.NONE) {
+            throw new RuntimeException("Error: move is not legal");
+        }
 
-    public void afterMove(int startX, int startY, int x, int y, Piece pieceInHand,
-                          Piece promotedPiece, List<Action> actions) {
+        if (Move.isPromotion(move)) {
+            move = Move.withPromotion(move, promotedPiece.getType().ordinal());
+        }
 
-        playerKing.setUnderCheck(false);
-        Piece capturedPiece = null;
-        boolean moved = false;
-
-        if (actions.contains(Action.LONG_CASTLING)
-                || actions.contains(Action.SHORT_CASTLING)) {
-
-            int rookStartX = startX < x ? 7 : 0;
-            int rookEndX = rookStartX == 0 ? 3 : 5;
-            Rook rook = (Rook) board.getPieceFromCell(rookStartX, startY);
-
-            board.movePiece(startX, startY, x, y, pieceInHand);
-            board.movePiece(rookStartX, startY, rookEndX, startY, rook);
-        } else {
-            if (actions.contains(Action.EN_PASSANT)) {
-                int enemyPawnY = y == 5 ? 4 : 3;
-                capturedPiece = board.getPieceFromCell(x, enemyPawnY);
-                if (capturedPiece == null) {
-                    throw new RuntimeException("Error during logging en passant");
-                }
-                board.placePiece(x, enemyPawnY, null);
-            } else {
-                if (board.getPieceFromCell(x, y) != null) {
-                    actions.add(Action.CAPTURE);
-                    capturedPiece = board.getPieceFromCell(x, y);
-                }
-                if (actions.contains(Action.PROMOTION)) {
-                    board.placePiece(startX, startY, null);
-                    board.placePiece(x, y, promotedPiece);
-                    moved = true;
+        navigator.play(move);
+        drawAllBoard();
+        board.setCurrentPiece(null);
+        updateGameStatus(true);
+    }
+
+    /**
+     * Finds check, checkmate and draws of the side to move on the status thread, so a tap never
+     * waits for a move generation. The answer is applied on the UI thread only if the position
+     * is still the same: a later move or undo cancels it.
+     */
+    private void updateGameStatus(boolean afterMove) {
+
+        cancelGameStatus();
+        int version = positionVersion;
+        PositionSnapshot snapshot = new PositionSnapshot(board);
+        statusTask = statusExecutor.submit(() -> {
+            GameStatus status = GameStatus.of(snapshot);
+            runOnUiThread(() -> {
+                if (version == positionVersion) {
+                    statusTask = null;
+                    applyGameStatus(status, afterMove);
                 }
+            });
+        });
+    }
+
+    private void cancelGameStatus() {
+        positionVersion++;
+        if (statusTask != null) {
+            statusTask.cancel(true);
+            statusTask = null;
+        }
+    }
+
+    private void applyGameStatus(GameStatus status, boolean afterMove) {
+
+        board.getKingOfThisColor(board.getSideToMove()).setUnderCheck(status.isCheck());
+        gameOver = status.isGameOver();
+        if (gameOver) {
+            checkmateText.setText(resultText(status));
+        }
+        checkmateText.setVisibility(gameOver ? View.VISIBLE : View.INVISIBLE);
+
+        // The symbol of the last move is added once, undo returns to moves logged with it
+        if (afterMove) {
+            if (status == GameStatus.CHECKMATE) {
+                logService.markLastMove(Action.CHECKMATE);
+            } else if (status == GameStatus.CHECK) {
+                logService.markLastMove(Action.CHECK);
             }
-            if (!moved) {
-                board.movePiece(startX, startY, x, y, pieceInHand);
-            }
+            Log.i("LOG", logService.getLastMove());
         }
+        startComputerMoveIfNeeded();
+    }
 
-        enemyPlayerKing.setUnderCheck(isKingUnderCheck(enemyPlayerKing));
-        checkMove = enemyPlayerKing.isUnderCheck();
+    private static String resultText(GameStatus status) {
+        switch (status) {
+            case CHECKMATE:
+                return "CHECKMATE";
+            case STALEMATE:
+                return "STALEMATE";
+            case REPETITION:
+                return "DRAW BY REPETITION";
+            case FIFTY_MOVES:
+                return "DRAW BY 50 MOVES";
+            default:
+                return "DRAW";
+        }
+    }
 
-        if (checkMove) {
-            checkmate = isCheckmate(enemyPlayerKing);
-            if (checkmate) {
-                actions.add(Action.CHECKMATE);
-                checkmateText.setVisibility(View.VISIBLE);
-                checkmate = true;
-            } else {
-                actions.add(Action.CHECK);
+    /**
+     * Starts the search when the computer is to move. It runs on the engine thread and its helper
+     * threads, every one with its own copy of the board, so the game board is only changed here,
+     * on the UI thread, by afterMove.
+     */
+    private void startComputerMoveIfNeeded() {
+
+        if (computerColor == null || gameOver || board.getSideToMove() != computerColor) {
+            return;
+        }
+
+        // Table is kept for the whole game, the next search starts with the results of this one
+        if (engineTable == null) {
+            engineTable = new TranspositionTable(Search.DEFAULT_TABLE_MB);
+        }
+        ParallelSearch search = new ParallelSearch(board, engineTable, ENGINE_THREADS);
+        search.setTablebase(tablebase);
+        runningSearch = search;
+        // The book is read on the engine thread too, its pages may have to come from the disk
+        Board bookPosition = openingBook != null ? new Board(board) : null;
+        engineExecutor.execute(() -> {
+            int move = bookPosition != null ? openingBook.pickMove(bookPosition, bookRandom)
+                    : Move.NONE;
+            if (move == Move.NONE) {
+                search.setBitbase(bitbase);
+                SearchResult result = search.search(Search.MAX_PLY, ENGINE_TIME_MILLIS, 0L);
+                Log.i("ENGINE", result.toString());
+                move = result.getBestMove();
             }
+            int chosenMove = move;
+            runOnUiThread(() -> {
+                // Undo or leaving the game cancels the search, its result is not played then
+                if (runningSearch == search) {
+                    runningSearch = null;
+                    playComputerMove(chosenMove);
+                }
+            });
+        });
+    }
+
+    // Opens the Polyglot book from the files of the app, or returns null when there is none
+    private PolyglotBook openBook() {
+
+        File book = new File(getFilesDir(), BOOK_FILE);
+        if (!book.isFile()) {
+            return null;
+        }
+        try {
+            return new PolyglotBook(book.toPath());
+        } catch (IOException | BookException e) {
+            Log.w("ENGINE", "Cannot open the opening book", e);
+            return null;
+        }
+    }
+
+    private Tablebase openTablebase() {
+
+        File directory = new File(getFilesDir(), TABLEBASE_DIRECTORY);
+        if (!directory.isDirectory()) {
+            return null;
+        }
+        try {
+            return new Tablebase(directory.toPath());
+        } catch (IOException | TablebaseException | IllegalArgumentException e) {
+            Log.w("ENGINE", "Cannot open the tablebase", e);
+            return null;
+        }
+    }
+
+    private Bitbase loadBitbase() {
+        try {
+            return Bitbase.load();
+        } catch (IOException | BitbaseException e) {
+            Log.w("ENGINE", "Cannot load the bitbases", e);
+            return null;
+        }
+    }
+
+    private void playComputerMove(int move) {
+
+        // No legal move: the end of the game is already shown after the move of the player
+        if (move == Move.NONE) {
+            return;
+        }
+
+        int startX = BitBoard.squareX(Move.from(move));
+        int startY = BitBoard.squareY(Move.from(move));
+        int x = BitBoard.squareX(Move.to(move));
+        int y = BitBoard.squareY(Move.to(move));
+        Piece pieceInHand = board.getPieceFromCell(startX, startY);
+        Piece promotedPiece = null;
+        if (Move.isPromotion(move)) {
+            promotedPiece = createPromotedPiece(PieceType.byIndex(Move.promotion(move)),
+                    computerColor, x, y);
+        }
+
+        playerKing = board.getKingOfThisColor(computerColor);
+        afterMove(startX, startY, x, y, pieceInHand, promotedPiece);
+    }
+
+    private Piece createPromotedPiece(PieceType type, Color color, int x, int y) {
+        switch (type) {
+            case KNIGHT:
+                return new Knight(color, x, y);
+            case BISHOP:
+                return new Bishop(color, x, y);
+            case ROOK:
+                return new Rook(color, x, y);
+            default:
+                return new Queen(color, x, y);
         }
-        logService.logMove(startX, startY, x, y, pieceInHand, capturedPiece, promotedPiece, actions);
-        Log.i("LOG", logService.getLastMove());
-        drawAllBoard();
-        board.setCurrentPiece(null);
     }
 
     public boolean ifPromotionRequired(Piece pieceInHand, int y, Color currentMoveColor) {
@@ -277,30 +486,51 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
                         (currentMoveColor.equals(Color.BLACK) && y == 0));
     }
 
-    public boolean isEnPassant(Piece pieceInHand, int startX, int endX, int endY) {
-        return pieceInHand instanceof Pawn && Math.abs(startX - endX) == 1 &&
-                board.getPieceFromCell(endX, endY) == null;
-    }
+    public void undoMove() {
+        if (runningSearch != null) {
+            runningSearch.stop();
+            runningSearch = null;
+        }
+        if (!navigator.canGoBack()) {
+            return;
+        }
+        navigator.back();
+        afterNavigation();
 
-    public boolean isCheckmate(King king) {
+        // Against the computer the move of the player is taken back together with its answer
+        if (computerColor != null && board.getSideToMove() == computerColor
+                && navigator.canGoBack()) {
+            undoMove();
+            return;
+        }
+        // Starts the computer as well, when it has the first move
+        updateGameStatus(false);
+    }
 
-        checkmate = moveService.checkCheckmate(king);
-        Log.d("CHECKMATE CHECKING: ", "IT IS " + checkmate);
+    public void redoMove() {
+        if (runningSearch != null || !navigator.canGoForward()) {
+            return;
+        }
+        navigator.forward();
+        afterNavigation();
 
-        return checkmate;
+        // The answer of the computer is brought back as well, if it was made
+        if (computerColor != null && board.getSideToMove() == computerColor
+                && navigator.canGoForward()) {
+            redoMove();
+            return;
+        }
+        updateGameStatus(false);
     }
 
-    public void undoMove() {
+    // The kings and the result text are set again by the status of the new position
+    private void afterNavigation() {
+        cancelGameStatus();
         board.setCurrentPiece(null);
         checkmateText.setVisibility(View.INVISIBLE);
-        Map<Integer[], Piece> previousPosition = logService.getPreviousPosition();
-
-        Piece piece;
-        for (Integer[] cords : previousPosition.keySet()) {
-            piece = previousPosition.get(cords);
-            board.placePiece(cords[0], cords[1], piece);
-        }
-        checkmate = false;
+        board.getKingOfThisColor(Color.WHITE).setUnderCheck(false);
+        board.getKingOfThisColor(Color.BLACK).setUnderCheck(false);
+        gameOver = false;
         drawAllBoard();
     }
 
@@ -318,10 +548,9 @@ public class GameActivity extends AppCompatActivity implements View.OnClickListe
     public void promotePawn(Piece promotedPiece, int startX, int endX, int piecesStartY) {
 
         int pawnStartY = piecesStartY == 7 ? 6 : 1;
-        List<Action> actions = Stream.of(Action.PROMOTION).collect(Collectors.toList());
         Pawn movedPawn = (Pawn) board.getPieceFromCell(startX, pawnStartY);
 
-        afterMove(startX, pawnStartY, endX, piecesStartY, movedPawn, promotedPiece, actions);
+        afterMove(startX, pawnStartY, endX, piecesStartY, movedPawn, promotedPiece);
     }
 
     @Override
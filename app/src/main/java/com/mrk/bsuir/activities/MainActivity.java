@@ -10,6 +10,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.AppCompatButton;
 
 import com.mrk.bsuir.R;
+import com.mrk.bsuir.model.Color;
 
 public class MainActivity extends AppCompatActivity implements View.OnClickListener {
 
@@ -18,8 +19,10 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         super.onCreate(savedInstanceState);
         setContentView(R.layout.main_menu);
         AppCompatButton gameButton = findViewById(R.id.play_button);
+        AppCompatButton computerButton = findViewById(R.id.computer_button);
         AppCompatButton rulesButton = findViewById(R.id.rules_button);
         gameButton.setOnClickListener(this);
+        computerButton.setOnClickListener(this);
         rulesButton.setOnClickListener(this);
     }
 
@@ -29,6 +32,12 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
             Intent intent = new Intent(this, GameActivity.class);
             startActivity(intent);
         }
+        else if (view.getId() == R.id.computer_button) {
+            // Player takes white, the computer answers with black
+            Intent intent = new Intent(this, GameActivity.class);
+            intent.putExtra("computerColor", Color.BLACK.getColor());
+            startActivity(intent);
+        }
         else if(view.getId() == R.id.rules_button){
             Uri uri = Uri.parse("https://xchess.ru/" +
                     "kak-igrat-v-shakhmaty-dlya-nachinayushchikh-polnoe-rukovodstvo.html");
@@ -0,0 +1,8 @@
+package com.mrk.bsuir.exceptions;
+
+public class BitbaseException extends RuntimeException {
+
+    public BitbaseException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.mrk.bsuir.exceptions;
+
+public class BookException extends RuntimeException {
+
+    public BookException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.mrk.bsuir.exceptions;
+
+public class FenException extends RuntimeException {
+
+    public FenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.mrk.bsuir.exceptions;
+
+public class PgnException extends RuntimeException {
+
+    public PgnException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.mrk.bsuir.exceptions;
+
+public class TablebaseException extends RuntimeException {
+
+    public TablebaseException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,261 @@
+package com.mrk.bsuir.model;
+
+/**
+ * Precomputed attack sets for every piece type. Squares are numbered as y * 8 + x, so the bit
+ * number n of the returned mask stands for the cell (n % 8, n / 8). Leaper attacks are simple
+ * table loads.
+ * Slider attacks use magic bitboards: the blockers on the rays of the square are multiplied by
+ * the magic number of the square and the top bits of the product are the index of the attack
+ * set in the table, so a query is one multiplication, one shift and one load. The magic numbers
+ * were found once by a random search and are fixed here, only the tables are filled when the
+ * class is loaded. Both tables take 107648 longs (841 KB); filling them is measured by
+ * AttacksBenchmark and takes about 30 ms on a cold desktop JVM and 3 ms once it is compiled.
+ */
+public final class Attacks {
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    private static final int[][] KNIGHT_STEPS = {
+            {1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}
+    };
+    private static final int[][] KING_STEPS = {
+            {1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}
+    };
+
+    private static final long[] ROOK_MAGICS = {
+            0x0080018840015420L, 0x0540100420014002L, 0x0100110008402004L, 0x0900100100200408L,
+            0x2A00200200080410L, 0x6080040002008001L, 0x4280020000800100L, 0x0180004100002480L,
+            0x0020800232400280L, 0x0189402010004001L, 0x0008802000801008L, 0x8082001008204204L,
+            0x0022000A00201004L, 0x0804802400020080L, 0x2114001001080204L, 0x0001800500004080L,
+            0x8040208000400080L, 0x4110820022420300L, 0x0000808010002002L, 0x0000090010002100L,
+            0x0000808004000802L, 0x0002008002040080L, 0x08E0040001100208L, 0x8288060000A24C03L,
+            0x8800802080004000L, 0x8090500040002000L, 0x9020010100104020L, 0x200A001200200840L,
+            0x020C000808004080L, 0x0002000200100804L, 0x0001002100141200L, 0x0080014200209904L,
+            0x0080814001800024L, 0x8410002000404002L, 0x0220A00082803000L, 0x0000080080801000L,
+            0x8404008008080040L, 0x4006000402000810L, 0x0801020804005001L, 0x4400800040800100L,
+            0x044018C221808000L, 0x1021500320044000L, 0x3006048020120041L, 0x1270008008008010L,
+            0x2054000800808004L, 0x40C1000804010002L, 0x05800208410400B0L, 0x0640508061160004L,
+            0x202040118000A280L, 0x0020084008802080L, 0x0008204080120200L, 0x4101A30210000900L,
+            0x090500C800045100L, 0x000200E4000E8080L, 0x0030500102884400L, 0x1900404401008200L,
+            0x8010800010204109L, 0x2020108900244001L, 0x9000084011002001L, 0x1042442100C81001L,
+            0x1409000210040801L, 0x0112000811041016L, 0x197A100802008104L, 0x0928840102815422L
+    };
+    private static final long[] BISHOP_MAGICS = {
+            0x0440100200803280L, 0x4250100900618808L, 0x2004010425084090L, 0x840C042580A00001L,
+            0x0014242000800002L, 0x0042086208000288L, 0x0080420820088040L, 0x8029010810840402L,
+            0x4020040410040108L, 0x0020840404040832L, 0x8C201044004040A8L, 0x8000040418800204L,
+            0x4110C11041182050L, 0xC881010120100000L, 0x9210020202218401L, 0x4300048401080201L,
+            0x5140002104240080L, 0xC104001050009100L, 0x80900C8A44048220L, 0x0208000C02400A04L,
+            0x0284002A0611100DL, 0x4001000480A0010AL, 0x8004100C80841049L, 0x0000400208420800L,
+            0x2020100020024220L, 0x02080400A9210815L, 0x0000500008008012L, 0x7034080020220040L,
+            0x00490010A5004000L, 0x0000920001010080L, 0x020A285028841000L, 0x0001120003420089L,
+            0x9044022001424410L, 0x100110820008880CL, 0x1021004046080080L, 0x2200020080480082L,
+            0x2004140400001010L, 0x2000900102038084L, 0x0021190204040240L, 0x0004244200614120L,
+            0x02008248401C2000L, 0x8005010820810280L, 0x0030202030002800L, 0x0000020102412403L,
+            0x4100080104442400L, 0x000AAE1042000100L, 0x1002108111008200L, 0x0008420040400200L,
+            0x4086023005040004L, 0x0012841111100200L, 0x240004242208270AL, 0x000C081104980400L,
+            0x0020A00410440000L, 0x1800430408098400L, 0x2020C40102240000L, 0x00788200DC01000AL,
+            0x1100105110082000L, 0x0600004420A80808L, 0x00018003004110A4L, 0x1010700000208830L,
+            0x0801102091020200L, 0x4000000408105100L, 0x8000300401481620L, 0x1010042810404200L
+    };
+
+    // Cells on the rays that can block them, the last cell of every ray never blocks anything
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+
+    // Rook and bishop attack sets of every square, one after another
+    private static final long[] SLIDER_ATTACKS;
+
+    // Cells strictly between two squares and the whole line through them, 0 if not on one line
+    private static final long[] BETWEEN = new long[64 * 64];
+    private static final long[] LINES = new long[64 * 64];
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            int x = square & 7;
+            int y = square >>> 3;
+
+            KNIGHT_ATTACKS[square] = leaperAttacks(x, y, KNIGHT_STEPS);
+            KING_ATTACKS[square] = leaperAttacks(x, y, KING_STEPS);
+            PAWN_ATTACKS[Color.WHITE.ordinal()][square] =
+                    cellMask(x - 1, y + 1) | cellMask(x + 1, y + 1);
+            PAWN_ATTACKS[Color.BLACK.ordinal()][square] =
+                    cellMask(x - 1, y - 1) | cellMask(x + 1, y - 1);
+        }
+
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            ROOK_MASKS[square] = blockerMask(square, ROOK_DIRECTIONS);
+            ROOK_SHIFTS[square] = 64 - Long.bitCount(ROOK_MASKS[square]);
+            ROOK_OFFSETS[square] = size;
+            size += 1 << Long.bitCount(ROOK_MASKS[square]);
+        }
+        for (int square = 0; square < 64; square++) {
+            BISHOP_MASKS[square] = blockerMask(square, BISHOP_DIRECTIONS);
+            BISHOP_SHIFTS[square] = 64 - Long.bitCount(BISHOP_MASKS[square]);
+            BISHOP_OFFSETS[square] = size;
+            size += 1 << Long.bitCount(BISHOP_MASKS[square]);
+        }
+
+        SLIDER_ATTACKS = buildSliderTable(size);
+
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                if (from == to) {
+                    continue;
+                }
+                long fromCell = 1L << from;
+                long toCell = 1L << to;
+                if ((rookAttacks(from, 0L) & toCell) != 0L) {
+                    BETWEEN[from << 6 | to] = rookAttacks(from, toCell) & rookAttacks(to, fromCell);
+                    LINES[from << 6 | to] = (rookAttacks(from, 0L) & rookAttacks(to, 0L))
+                            | fromCell | toCell;
+                } else if ((bishopAttacks(from, 0L) & toCell) != 0L) {
+                    BETWEEN[from << 6 | to] =
+                            bishopAttacks(from, toCell) & bishopAttacks(to, fromCell);
+                    LINES[from << 6 | to] = (bishopAttacks(from, 0L) & bishopAttacks(to, 0L))
+                            | fromCell | toCell;
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    // Cells attacked by a pawn of the given color standing on the square
+    public static long pawnAttacks(int color, int square) {
+        return PAWN_ATTACKS[color][square];
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return SLIDER_ATTACKS[ROOK_OFFSETS[square] + (int) (((occupied & ROOK_MASKS[square])
+                * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return SLIDER_ATTACKS[BISHOP_OFFSETS[square] + (int) (((occupied & BISHOP_MASKS[square])
+                * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    // Cells strictly between two squares of one rank, file or diagonal, otherwise 0
+    public static long between(int from, int to) {
+        return BETWEEN[from << 6 | to];
+    }
+
+    // Whole rank, file or diagonal through both squares, otherwise 0
+    public static long line(int from, int to) {
+        return LINES[from << 6 | to];
+    }
+
+    // Amount of longs in the slider tables
+    static int sliderTableSize() {
+        return SLIDER_ATTACKS.length;
+    }
+
+    // Fills the slider tables, separate from class loading so the time of it can be measured
+    static long[] buildSliderTable(int size) {
+        long[] table = new long[size];
+        for (int square = 0; square < 64; square++) {
+            fillAttacks(table, square, ROOK_MASKS[square], ROOK_MAGICS[square],
+                    ROOK_SHIFTS[square], ROOK_OFFSETS[square], ROOK_DIRECTIONS);
+            fillAttacks(table, square, BISHOP_MASKS[square], BISHOP_MAGICS[square],
+                    BISHOP_SHIFTS[square], BISHOP_OFFSETS[square], BISHOP_DIRECTIONS);
+        }
+        return table;
+    }
+
+    // Every subset of the blocker mask is visited with the carry-rippler trick
+    private static void fillAttacks(long[] table, int square, long mask, long magic, int shift,
+                                    int offset, int[][] directions) {
+        long blockers = 0L;
+        do {
+            int index = offset + (int) ((blockers * magic) >>> shift);
+            table[index] = slidingAttacks(square, blockers, directions);
+            blockers = (blockers - mask) & mask;
+        } while (blockers != 0L);
+    }
+
+    private static long blockerMask(int square, int[][] directions) {
+
+        long mask = 0L;
+        int startX = square & 7;
+        int startY = square >>> 3;
+
+        for (int[] direction : directions) {
+            int x = startX + direction[0];
+            int y = startY + direction[1];
+            while (isOnBoard(x + direction[0], y + direction[1])) {
+                mask |= 1L << ((y << 3) | x);
+                x += direction[0];
+                y += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static boolean isOnBoard(int x, int y) {
+        return x >= 0 && x < 8 && y >= 0 && y < 8;
+    }
+
+    // Attacks calculated ray by ray, used to fill the tables and to check them
+    static long slidingAttacks(int square, long occupied, int[][] directions) {
+
+        long attacks = 0L;
+        int startX = square & 7;
+        int startY = square >>> 3;
+
+        for (int[] direction : directions) {
+            int x = startX + direction[0];
+            int y = startY + direction[1];
+
+            // The first occupied cell on the ray is still attacked, but it stops the ray
+            while (x >= 0 && x < 8 && y >= 0 && y < 8) {
+                long cell = 1L << ((y << 3) | x);
+                attacks |= cell;
+                if ((occupied & cell) != 0) {
+                    break;
+                }
+                x += direction[0];
+                y += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    private static long leaperAttacks(int x, int y, int[][] steps) {
+        long attacks = 0L;
+        for (int[] step : steps) {
+            attacks |= cellMask(x + step[0], y + step[1]);
+        }
+        return attacks;
+    }
+
+    private static long cellMask(int x, int y) {
+        if (x < 0 || x > 7 || y < 0 || y > 7) {
+            return 0L;
+        }
+        return 1L << ((y << 3) | x);
+    }
+}
@@ -0,0 +1,276 @@
+package com.mrk.bsuir.model;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard core of the position. Every piece type of every color has its own 64-bit mask where
+ * the bit number (y * 8 + x) is set when such a piece stands on the cell (x, y). Occupancy of
+ * both colors is kept alongside, so questions like "is this cell attacked?" cost a few bitwise
+ * operations instead of a scan of the whole board.
+ * Squares attacked by each color can be kept as well. Any change of the pieces drops them, and
+ * getAttackMap builds the map of a color again in full on its first call after that, while
+ * Board restores them from its undo stack when a move is taken back. isSquareAttacked reads a
+ * map only when it is already there, otherwise it looks for the attackers of the one square.
+ * Material and piece-square scores of Evaluation are summed up the same way, when pieces are
+ * added and removed, so evaluation does not look at the squares at all. So is the material
+ * signature, the count of every piece type of both colors, which tells the tables and the draw
+ * by insufficient material apart without counting the pieces.
+ * Board keeps this class in sync with its cells, so it can be changed only from this package.
+ */
+public class BitBoard {
+
+    private final long[] pieces = new long[2 * PieceType.COUNT];
+    private final long[] occupancy = new long[2];
+    private long allOccupancy;
+
+    // Piece type on every square or -1 for empty ones
+    private final byte[] pieceTypes = new byte[64];
+
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long FILE_H = FILE_A << 7;
+
+    // Cells of the color of a1 and of the other color
+    private static final long DARK_SQUARES = 0xAA55AA55AA55AA55L;
+    private static final long LIGHT_SQUARES = ~DARK_SQUARES;
+
+    // Attacked squares of every color, valid only when its bit is set in validAttackMaps
+    private final long[] attackMaps = new long[2];
+    private int validAttackMaps;
+
+    // Sums of Evaluation scores of all pieces, from the side of white, and the game phase
+    private int middlegameScore;
+    private int endgameScore;
+    private int phase;
+
+    // Four bits of count for every piece type of both colors, see materialOf
+    private long materialSignature;
+
+    public BitBoard() {
+        Arrays.fill(pieceTypes, (byte) -1);
+    }
+
+    public BitBoard(BitBoard other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.occupancy, 0, occupancy, 0, occupancy.length);
+        System.arraycopy(other.pieceTypes, 0, pieceTypes, 0, pieceTypes.length);
+        System.arraycopy(other.attackMaps, 0, attackMaps, 0, attackMaps.length);
+        allOccupancy = other.allOccupancy;
+        validAttackMaps = other.validAttackMaps;
+        middlegameScore = other.middlegameScore;
+        endgameScore = other.endgameScore;
+        phase = other.phase;
+        materialSignature = other.materialSignature;
+    }
+
+    public static int square(int x, int y) {
+        return (y << 3) | x;
+    }
+
+    public static int squareX(int square) {
+        return square & 7;
+    }
+
+    public static int squareY(int square) {
+        return square >>> 3;
+    }
+
+    void clear() {
+        for (int i = 0; i < pieces.length; i++) {
+            pieces[i] = 0L;
+        }
+        Arrays.fill(pieceTypes, (byte) -1);
+        occupancy[0] = 0L;
+        occupancy[1] = 0L;
+        allOccupancy = 0L;
+        validAttackMaps = 0;
+        middlegameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        materialSignature = 0L;
+    }
+
+    void addPiece(int color, int type, int square) {
+        long cell = 1L << square;
+        pieceTypes[square] = (byte) type;
+        pieces[color * PieceType.COUNT + type] |= cell;
+        occupancy[color] |= cell;
+        allOccupancy |= cell;
+        validAttackMaps = 0;
+        middlegameScore += Evaluation.middlegameScore(color, type, square);
+        endgameScore += Evaluation.endgameScore(color, type, square);
+        phase += Evaluation.phaseWeight(type);
+        materialSignature += materialOf(color, type);
+    }
+
+    void removePiece(int color, int type, int square) {
+        long cell = ~(1L << square);
+        pieceTypes[square] = -1;
+        pieces[color * PieceType.COUNT + type] &= cell;
+        occupancy[color] &= cell;
+        allOccupancy &= cell;
+        validAttackMaps = 0;
+        middlegameScore -= Evaluation.middlegameScore(color, type, square);
+        endgameScore -= Evaluation.endgameScore(color, type, square);
+        phase -= Evaluation.phaseWeight(type);
+        materialSignature -= materialOf(color, type);
+    }
+
+    public long getPieces(int color, int type) {
+        return pieces[color * PieceType.COUNT + type];
+    }
+
+    public long getPieces(Color color, PieceType type) {
+        return getPieces(color.ordinal(), type.ordinal());
+    }
+
+    // Type of the piece on the square or -1 if the square is empty
+    public int getPieceType(int square) {
+        return pieceTypes[square];
+    }
+
+    public long getOccupancy(int color) {
+        return occupancy[color];
+    }
+
+    public long getAllOccupancy() {
+        return allOccupancy;
+    }
+
+    public int getMiddlegameScore() {
+        return middlegameScore;
+    }
+
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+
+    public int getPhase() {
+        return phase;
+    }
+
+    // Signature of one piece, signatures of several pieces are their sums
+    public static long materialOf(int color, int type) {
+        return 1L << (4 * (color * PieceType.COUNT + type));
+    }
+
+    public long getMaterialSignature() {
+        return materialSignature;
+    }
+
+    /**
+     * Neither side can mate whatever is played: kings alone, a king and one minor piece against
+     * a king, or only bishops that all stand on cells of one color.
+     */
+    public boolean isInsufficientMaterial() {
+
+        int king = PieceType.KING.ordinal();
+        long material = materialSignature - materialOf(0, king) - materialOf(1, king);
+        if (material == 0L) {
+            return true;
+        }
+        int knight = PieceType.KNIGHT.ordinal();
+        int bishop = PieceType.BISHOP.ordinal();
+        for (int color = 0; color < 2; color++) {
+            if (material == materialOf(color, knight) || material == materialOf(color, bishop)) {
+                return true;
+            }
+        }
+        long bishopCounts = 0xFL * (materialOf(0, bishop) | materialOf(1, bishop));
+        if ((material & ~bishopCounts) != 0L) {
+            return false;
+        }
+        long bishops = getPieces(0, bishop) | getPieces(1, bishop);
+        return (bishops & DARK_SQUARES) == 0L || (bishops & LIGHT_SQUARES) == 0L;
+    }
+
+    /**
+     * Returns the mask of all pieces of the given color that attack the square, with sliders
+     * being blocked by the occupied cells passed to this method.
+     */
+    public long attackersOf(int square, int byColor, long occupied) {
+
+        int base = byColor * PieceType.COUNT;
+        long queens = pieces[base + PieceType.QUEEN.ordinal()];
+
+        // A pawn of the attacking color stands where a pawn of the other color would attack
+        return (Attacks.pawnAttacks(byColor ^ 1, square) & pieces[base + PieceType.PAWN.ordinal()])
+                | (Attacks.knightAttacks(square) & pieces[base + PieceType.KNIGHT.ordinal()])
+                | (Attacks.kingAttacks(square) & pieces[base + PieceType.KING.ordinal()])
+                | (Attacks.bishopAttacks(square, occupied)
+                & (pieces[base + PieceType.BISHOP.ordinal()] | queens))
+                | (Attacks.rookAttacks(square, occupied)
+                & (pieces[base + PieceType.ROOK.ordinal()] | queens));
+    }
+
+    // A single question does not pay for the whole map, but uses it when it is already there
+    public boolean isSquareAttacked(int square, int byColor) {
+        if ((validAttackMaps & (1 << byColor)) != 0) {
+            return (attackMaps[byColor] & (1L << square)) != 0L;
+        }
+        return attackersOf(square, byColor, allOccupancy) != 0L;
+    }
+
+    // Every square attacked by the pieces of the given color
+    public long getAttackMap(int color) {
+        if ((validAttackMaps & (1 << color)) == 0) {
+            attackMaps[color] = calculateAttackMap(color);
+            validAttackMaps |= 1 << color;
+        }
+        return attackMaps[color];
+    }
+
+    boolean hasAttackMap(int color) {
+        return (validAttackMaps & (1 << color)) != 0;
+    }
+
+    // Used by Board to put back the map of the position before the move
+    void setAttackMap(int color, long attackMap) {
+        attackMaps[color] = attackMap;
+        validAttackMaps |= 1 << color;
+    }
+
+    private long calculateAttackMap(int color) {
+
+        int base = color * PieceType.COUNT;
+        long pawns = pieces[base + PieceType.PAWN.ordinal()];
+        long attacks = color == Color.WHITE.ordinal()
+                ? ((pawns & ~FILE_A) << 7) | ((pawns & ~FILE_H) << 9)
+                : ((pawns & ~FILE_H) >>> 7) | ((pawns & ~FILE_A) >>> 9);
+
+        long knights = pieces[base + PieceType.KNIGHT.ordinal()];
+        while (knights != 0L) {
+            attacks |= Attacks.knightAttacks(Long.numberOfTrailingZeros(knights));
+            knights &= knights - 1;
+        }
+
+        long queens = pieces[base + PieceType.QUEEN.ordinal()];
+        long diagonal = pieces[base + PieceType.BISHOP.ordinal()] | queens;
+        while (diagonal != 0L) {
+            attacks |= Attacks.bishopAttacks(Long.numberOfTrailingZeros(diagonal), allOccupancy);
+            diagonal &= diagonal - 1;
+        }
+        long straight = pieces[base + PieceType.ROOK.ordinal()] | queens;
+        while (straight != 0L) {
+            attacks |= Attacks.rookAttacks(Long.numberOfTrailingZeros(straight), allOccupancy);
+            straight &= straight - 1;
+        }
+
+        long king = pieces[base + PieceType.KING.ordinal()];
+        if (king != 0L) {
+            attacks |= Attacks.kingAttacks(Long.numberOfTrailingZeros(king));
+        }
+        return attacks;
+    }
+
+    // Bishops, rooks and queens of the given color attacking the square
+    public long sliderAttackersOf(int square, int byColor, long occupied) {
+
+        int base = byColor * PieceType.COUNT;
+        long queens = pieces[base + PieceType.QUEEN.ordinal()];
+
+        return (Attacks.bishopAttacks(square, occupied)
+                & (pieces[base + PieceType.BISHOP.ordinal()] | queens))
+                | (Attacks.rookAttacks(square, occupied)
+                & (pieces[base + PieceType.ROOK.ordinal()] | queens));
+    }
+}
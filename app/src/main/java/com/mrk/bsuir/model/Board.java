@@ -1,5 +1,6 @@
 package com.mrk.bsuir.model;
 
+import com.mrk.bsuir.exceptions.FenException;
 import com.mrk.bsuir.model.impl.Bishop;
 import com.mrk.bsuir.model.impl.King;
 import com.mrk.bsuir.model.impl.Knight;
@@ -7,67 +8,341 @@ import com.mrk.bsuir.model.impl.Pawn;
 import com.mrk.bsuir.model.impl.Queen;
 import com.mrk.bsuir.model.impl.Rook;
 
-import java.util.stream.IntStream;
+import java.util.Arrays;
 
-public class Board {
+/**
+ * Facade over the bitboard core of the position. Pieces are still stored as objects, so the
+ * activities can draw and select them, but every change is mirrored into the BitBoard, which is
+ * used by MoveService to answer occupancy and attack questions.
+ * Board is the only mutable Position: moves change it through makeMove and unmakeMove, while
+ * PositionSnapshot copies it for the readers on other threads.
+ * Any position can be set up from FEN by setFen and written back by getFen.
+ */
+public class Board implements Position {
 
-    private Piece[][] boardCells;
+    public static final String START_FEN =
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    public static final int WHITE_SHORT_CASTLING = 1;
+    public static final int WHITE_LONG_CASTLING = 2;
+    public static final int BLACK_SHORT_CASTLING = 4;
+    public static final int BLACK_LONG_CASTLING = 8;
+
+    // Cells of kings and rooks, which firstMove flags define the castling rights
+    private static final long CASTLING_CELLS = (1L << 0) | (1L << 4) | (1L << 7)
+            | (1L << 56) | (1L << 60) | (1L << 63);
+
+    private final Piece[] boardCells = new Piece[64];
+    private final BitBoard bitBoard = new BitBoard();
     private Piece currentPiece = null;
 
     private King whiteKing = null;
     private King blackKing = null;
 
+    private int whiteKingSquare = -1;
+    private int blackKingSquare = -1;
+
+    // Cell skipped by the pawn that has just made a two-square advance, or -1. It is kept only
+    // when a pawn of the side to move stands next to that pawn, otherwise the same position
+    // would get two Zobrist keys and its repetitions would be missed
+    private int enPassantSquare = -1;
+
+    private Color sideToMove = Color.WHITE;
+    private int castlingRights = 0;
+
+    // Moves since the last capture or pawn move and the number of the full move, as in FEN
+    private int halfmoveClock = 0;
+    private int fullmoveNumber = 1;
+
+    // Zobrist key of the position, updated together with every change of it
+    private long zobristKey = 0L;
+
+    // Undo record: bits 0-3 castling rights, 4-10 en passant square + 1, the flags below and
+    // the halfmove clock from bit 15
+    private static final int UNDO_PIECE_FIRST_MOVE = 1 << 11;
+    private static final int UNDO_ROOK_FIRST_MOVE = 1 << 12;
+    // Attack map of the color was calculated before the move, shifted by the color index
+    private static final int UNDO_ATTACK_MAP = 1 << 13;
+    private static final int UNDO_HALFMOVE_SHIFT = 15;
+    private static final int MAX_HALFMOVE_CLOCK = 0xFFFF;
+
+    private static final String PIECE_LETTERS = "PNBRQK";
+
+    // Undo stack, one record per move made by makeMove
+    private int[] undoMoves = new int[256];
+    private int[] undoStates = new int[256];
+    private long[] undoKeys = new long[256];
+    private long[] undoAttackMaps = new long[2 * 256];
+    private Piece[] undoMovedPieces = new Piece[256];
+    private Piece[] undoCapturedPieces = new Piece[256];
+    private int undoSize = 0;
+
+    // Keys of the positions of the game, for the draw by repetition
+    private final PositionHistory history = new PositionHistory();
+
     public Board() {
         initBoard();
     }
 
+    // Deep copy of the position, so another thread can work with it independently
+    public Board(Board other) {
+        for (int square = 0; square < 64; square++) {
+            Piece piece = other.boardCells[square];
+            if (piece != null) {
+                Piece copy = piece.copy();
+                if (piece == other.whiteKing) {
+                    whiteKing = (King) copy;
+                } else if (piece == other.blackKing) {
+                    blackKing = (King) copy;
+                }
+                setSquare(square, copy);
+            }
+        }
+        setEnPassantSquare(other.enPassantSquare);
+        setSideToMove(other.sideToMove);
+        updateCastlingRights();
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        history.copyFrom(other.history, halfmoveClock);
+    }
+
     public void initBoard() {
+        setFen(START_FEN);
+    }
 
-        whiteKing = new King(Color.WHITE, 4, 0);
-        blackKing = new King(Color.BLACK, 4, 7);
-
-        // White pieces
-        Piece[] whitePieces = new Piece[]{
-                new Rook(Color.WHITE, 0, 0),
-                new Knight(Color.WHITE, 1, 0),
-                new Bishop(Color.WHITE, 2, 0),
-                new Queen(Color.WHITE, 3, 0),
-                whiteKing,
-                new Bishop(Color.WHITE, 5, 0),
-                new Knight(Color.WHITE, 6, 0),
-                new Rook(Color.WHITE, 7, 0)
-        };
-
-        // Black pieces
-        Piece[] blackPieces = new Piece[]{
-                new Rook(Color.BLACK, 0, 7),
-                new Knight(Color.BLACK, 1, 7),
-                new Bishop(Color.BLACK, 2, 7),
-                new Queen(Color.BLACK, 3, 7),
-                blackKing,
-                new Bishop(Color.BLACK, 5, 7),
-                new Knight(Color.BLACK, 6, 7),
-                new Rook(Color.BLACK, 7, 7)
-        };
-
-        // Declaring the new board and assigning null to every cell
-        boardCells = new Piece[8][8];
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                boardCells[i][j] = null;
-            }
-        }
-
-        // Filling board cells with pieces
-        IntStream.range(0, 8)
-                .forEach(i -> {
-                    boardCells[i][0] = whitePieces[i];
-                    boardCells[i][7] = blackPieces[i];
-                    boardCells[i][1] = new Pawn(Color.WHITE, i, 1);
-                    boardCells[i][1].setStartPosition(i,1);
-                    boardCells[i][6] = new Pawn(Color.BLACK, i, 6);
-                    boardCells[i][6].setStartPosition(i,6);
-                });
+    /**
+     * Replaces the whole position with the one written in FEN. The counters may be omitted, as
+     * they are in EPD. The text is read in place, so nothing but the pieces is created. Kings and
+     * rooks of the castling field, and pawns on their start ranks, keep their firstMove flags,
+     * the pieces take their cells as start positions. The undo stack is cleared.
+     * The board is not changed if the FEN is not valid.
+     */
+    public void setFen(CharSequence fen) {
+
+        // Placement is checked before the board is touched: color * 6 + type + 1 per cell
+        int[] cells = new int[64];
+        int index = skipSpaces(fen, 0);
+        int x = 0;
+        int y = 7;
+        int whiteKings = 0;
+        int blackKings = 0;
+        for (; index < fen.length() && fen.charAt(index) != ' '; index++) {
+            char c = fen.charAt(index);
+            if (c == '/') {
+                if (x != 8 || y == 0) {
+                    throw new FenException("Wrong rank " + (y + 1) + " in " + fen);
+                }
+                x = 0;
+                y--;
+            } else if (c >= '1' && c <= '8') {
+                x += c - '0';
+            } else {
+                int type = PIECE_LETTERS.indexOf(Character.toUpperCase(c));
+                if (type < 0 || x > 7) {
+                    throw new FenException("Wrong piece placement in " + fen);
+                }
+                int color = Character.isUpperCase(c) ? 0 : 1;
+                if (type == PieceType.KING.ordinal()) {
+                    if (color == 0) {
+                        whiteKings++;
+                    } else {
+                        blackKings++;
+                    }
+                }
+                cells[BitBoard.square(x++, y)] = color * PieceType.COUNT + type + 1;
+            }
+            if (x > 8) {
+                throw new FenException("Wrong rank " + (y + 1) + " in " + fen);
+            }
+        }
+        if (x != 8 || y != 0) {
+            throw new FenException("Piece placement is not complete in " + fen);
+        }
+        if (whiteKings != 1 || blackKings != 1) {
+            throw new FenException("Every side should have one king in " + fen);
+        }
+
+        index = skipSpaces(fen, index);
+        Color side = Color.WHITE;
+        if (index < fen.length()) {
+            char c = fen.charAt(index++);
+            if (c != 'w' && c != 'b') {
+                throw new FenException("Wrong side to move in " + fen);
+            }
+            side = c == 'w' ? Color.WHITE : Color.BLACK;
+        }
+
+        index = skipSpaces(fen, index);
+        int rights = 0;
+        for (; index < fen.length() && fen.charAt(index) != ' '; index++) {
+            int right = "KQkq-".indexOf(fen.charAt(index));
+            if (right < 0) {
+                throw new FenException("Wrong castling rights in " + fen);
+            }
+            rights |= (1 << right) & 0xF;
+        }
+
+        index = skipSpaces(fen, index);
+        int enPassant = -1;
+        if (index < fen.length() && fen.charAt(index) != '-') {
+            if (index + 1 >= fen.length() || !isSquare(fen.charAt(index), fen.charAt(index + 1))
+                    || (fen.charAt(index + 1) != '3' && fen.charAt(index + 1) != '6')) {
+                throw new FenException("Wrong en passant square in " + fen);
+            }
+            enPassant = BitBoard.square(fen.charAt(index) - 'a', fen.charAt(index + 1) - '1');
+            index += 2;
+        } else if (index < fen.length()) {
+            index++;
+        }
+
+        index = skipSpaces(fen, index);
+        int halfmoves = 0;
+        for (; index < fen.length() && fen.charAt(index) != ' '; index++) {
+            halfmoves = Math.min(halfmoves * 10 + digit(fen, index), MAX_HALFMOVE_CLOCK);
+        }
+        index = skipSpaces(fen, index);
+        int fullmoves = index < fen.length() ? 0 : 1;
+        for (; index < fen.length() && fen.charAt(index) != ' '; index++) {
+            fullmoves = Math.min(fullmoves * 10 + digit(fen, index), MAX_HALFMOVE_CLOCK);
+        }
+
+        clear();
+        for (int square = 0; square < 64; square++) {
+            if (cells[square] != 0) {
+                setSquare(square, createPiece(cells[square] - 1, square, rights));
+            }
+        }
+        setEnPassantSquare(enPassant >= 0 ? capturableEnPassantSquare(enPassant,
+                side.ordinal()) : -1);
+        setSideToMove(side);
+        updateCastlingRights();
+        halfmoveClock = halfmoves;
+        fullmoveNumber = Math.max(fullmoves, 1);
+        history.push(zobristKey, halfmoveClock);
+    }
+
+    // Position in FEN, with the en passant square after every two-square pawn move
+    public String getFen() {
+        StringBuilder builder = new StringBuilder(90);
+        appendFen(builder);
+        return builder.toString();
+    }
+
+    public void appendFen(StringBuilder builder) {
+
+        for (int y = 7; y >= 0; y--) {
+            int empty = 0;
+            for (int x = 0; x < 8; x++) {
+                Piece piece = boardCells[BitBoard.square(x, y)];
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    builder.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                char letter = PIECE_LETTERS.charAt(piece.getType().ordinal());
+                builder.append(piece.getColor() == Color.WHITE ? letter
+                        : Character.toLowerCase(letter));
+            }
+            if (empty > 0) {
+                builder.append((char) ('0' + empty));
+            }
+            if (y > 0) {
+                builder.append('/');
+            }
+        }
+
+        builder.append(sideToMove == Color.WHITE ? " w " : " b ");
+        if (castlingRights == 0) {
+            builder.append('-');
+        }
+        for (int right = 0; right < 4; right++) {
+            if ((castlingRights & (1 << right)) != 0) {
+                builder.append("KQkq".charAt(right));
+            }
+        }
+        builder.append(' ');
+        if (enPassantSquare < 0) {
+            builder.append('-');
+        } else {
+            builder.append((char) ('a' + BitBoard.squareX(enPassantSquare)))
+                    .append((char) ('1' + BitBoard.squareY(enPassantSquare)));
+        }
+        builder.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+    }
+
+    private void clear() {
+        Arrays.fill(boardCells, null);
+        bitBoard.clear();
+        currentPiece = null;
+        whiteKing = null;
+        blackKing = null;
+        whiteKingSquare = -1;
+        blackKingSquare = -1;
+        enPassantSquare = -1;
+        sideToMove = Color.WHITE;
+        castlingRights = 0;
+        zobristKey = 0L;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        Arrays.fill(undoMovedPieces, null);
+        Arrays.fill(undoCapturedPieces, null);
+        undoSize = 0;
+        history.clear();
+    }
+
+    // Piece of the FEN placement, its flags are taken from the cell and the castling rights
+    private Piece createPiece(int code, int square, int rights) {
+
+        Color color = code < PieceType.COUNT ? Color.WHITE : Color.BLACK;
+        int x = BitBoard.squareX(square);
+        int y = BitBoard.squareY(square);
+        int homeRank = color == Color.WHITE ? 0 : 7;
+        int colorRights = color == Color.WHITE ? rights & 0x3 : (rights >>> 2) & 0x3;
+
+        switch (PieceType.byIndex(code % PieceType.COUNT)) {
+            case PAWN:
+                Pawn pawn = new Pawn(color, x, y);
+                pawn.setFirstMove(y == (color == Color.WHITE ? 1 : 6));
+                return pawn;
+            case ROOK:
+                Rook rook = new Rook(color, x, y);
+                rook.setFirstMove(y == homeRank && ((x == 7 && (colorRights & 1) != 0)
+                        || (x == 0 && (colorRights & 2) != 0)));
+                return rook;
+            case KING:
+                King king = new King(color, x, y);
+                king.setFirstMove(y == homeRank && x == 4 && colorRights != 0);
+                if (color == Color.WHITE) {
+                    whiteKing = king;
+                } else {
+                    blackKing = king;
+                }
+                return king;
+            default:
+                return createPromotedPiece(code % PieceType.COUNT, color, x, y);
+        }
+    }
+
+    private static int skipSpaces(CharSequence fen, int index) {
+        while (index < fen.length() && fen.charAt(index) == ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    private static int digit(CharSequence fen, int index) {
+        char c = fen.charAt(index);
+        if (c < '0' || c > '9') {
+            throw new FenException("Wrong move counter in " + fen);
+        }
+        return c - '0';
+    }
+
+    private static boolean isSquare(char file, char rank) {
+        return file >= 'a' && file <= 'h' && rank >= '1' && rank <= '8';
     }
 
     public Color getCellColor(int x, int y) {
@@ -75,12 +350,344 @@ public class Board {
     }
 
     public Piece getPieceFromCell(int x, int y) {
-        return boardCells[x][y];
+        return boardCells[BitBoard.square(x, y)];
+    }
+
+    public Piece getPieceFromSquare(int square) {
+        return boardCells[square];
     }
 
+    @Override
+    public BitBoard getBitBoard() {
+        return bitBoard;
+    }
+
+    /**
+     * Moves the piece as a part of the real move, so the pieces lose the ability to castle or make
+     * a long pawn move here. Temporary changes of the position should use placePiece instead.
+     */
     public void movePiece(int startX, int startY, int endX, int endY, Piece piece) {
-        boardCells[startX][startY] = null;
-        boardCells[endX][endY] = piece;
+        setSquare(BitBoard.square(startX, startY), null);
+        setSquare(BitBoard.square(endX, endY), piece);
+
+        int newEnPassantSquare = -1;
+        if (piece instanceof Pawn) {
+            ((Pawn) piece).setFirstMove(false);
+            if (Math.abs(endY - startY) == 2) {
+                newEnPassantSquare = capturableEnPassantSquare(
+                        BitBoard.square(startX, (startY + endY) / 2),
+                        1 - piece.getColor().ordinal());
+            }
+        } else if (piece instanceof King) {
+            ((King) piece).setFirstMove(false);
+            updateCastlingRights();
+        } else if (piece instanceof Rook) {
+            ((Rook) piece).setFirstMove(false);
+            updateCastlingRights();
+        }
+        setEnPassantSquare(newEnPassantSquare);
+    }
+
+    /**
+     * Makes the move, encoded by the Move class, including the rook of castling, the pawn taken
+     * en passant and the promoted piece. The move should be legal in this position.
+     * Everything needed to take the move back is pushed to the undo stack of primitive arrays,
+     * so unmakeMove restores the position without rebuilding it.
+     */
+    public void makeMove(int move) {
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int startX = BitBoard.squareX(from);
+        int startY = BitBoard.squareY(from);
+        int endX = BitBoard.squareX(to);
+        int endY = BitBoard.squareY(to);
+        Piece piece = boardCells[from];
+
+        int capturedSquare = Move.isEnPassant(move) ? BitBoard.square(endX, startY) : to;
+        Piece rook = null;
+        int rookStartX = endX > startX ? 7 : 0;
+        if (Move.isCastling(move)) {
+            rook = getPieceFromCell(rookStartX, startY);
+        }
+        pushUndoRecord(move, piece, boardCells[capturedSquare], rook);
+
+        if (rook != null) {
+            movePiece(startX, startY, endX, endY, piece);
+            movePiece(rookStartX, startY, endX > startX ? 5 : 3, startY, rook);
+        } else if (Move.isPromotion(move)) {
+            setSquare(from, null);
+            setSquare(to, createPromotedPiece(Move.promotion(move), piece.getColor(), endX, endY));
+            setEnPassantSquare(-1);
+        } else {
+            if (capturedSquare != to) {
+                setSquare(capturedSquare, null);
+            }
+            movePiece(startX, startY, endX, endY, piece);
+        }
+
+        if (Move.piece(move) == PieceType.PAWN.ordinal() || Move.isCapture(move)) {
+            halfmoveClock = 0;
+        } else if (halfmoveClock < MAX_HALFMOVE_CLOCK) {
+            halfmoveClock++;
+        }
+        if (sideToMove == Color.BLACK) {
+            fullmoveNumber++;
+        }
+        switchSideToMove();
+        history.push(zobristKey, halfmoveClock);
+    }
+
+    // Takes back the last move made by makeMove
+    public void unmakeMove() {
+
+        int index = --undoSize;
+        history.pop();
+        int move = undoMoves[index];
+        int state = undoStates[index];
+        Piece piece = undoMovedPieces[index];
+        Piece captured = undoCapturedPieces[index];
+        undoMovedPieces[index] = null;
+        undoCapturedPieces[index] = null;
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        setFirstMove(piece, (state & UNDO_PIECE_FIRST_MOVE) != 0);
+
+        if (Move.isCastling(move)) {
+            int rookStart = to > from ? from + 3 : from - 4;
+            int rookEnd = to > from ? from + 1 : from - 1;
+            Piece rook = boardCells[rookEnd];
+            setFirstMove(rook, (state & UNDO_ROOK_FIRST_MOVE) != 0);
+            setSquare(rookEnd, null);
+            setSquare(rookStart, rook);
+        }
+
+        setSquare(to, null);
+        setSquare(from, piece);
+        if (captured != null) {
+            int capturedSquare = Move.isEnPassant(move)
+                    ? BitBoard.square(BitBoard.squareX(to), BitBoard.squareY(from)) : to;
+            setSquare(capturedSquare, captured);
+        }
+
+        // State and key are restored as they were, not recalculated
+        castlingRights = state & 0xF;
+        enPassantSquare = ((state >>> 4) & 0x7F) - 1;
+        sideToMove = sideToMove == Color.WHITE ? Color.BLACK : Color.WHITE;
+        halfmoveClock = state >>> UNDO_HALFMOVE_SHIFT;
+        if (sideToMove == Color.BLACK) {
+            fullmoveNumber--;
+        }
+        zobristKey = undoKeys[index];
+        for (int color = 0; color < 2; color++) {
+            if ((state & (UNDO_ATTACK_MAP << color)) != 0) {
+                bitBoard.setAttackMap(color, undoAttackMaps[2 * index + color]);
+            }
+        }
+    }
+
+    // Moves since the last capture or pawn move, for the fifty-move rule
+    @Override
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    // Times the position has occurred since the last capture or pawn move, this time included
+    @Override
+    public int getRepetitionCount() {
+        return history.getOccurrences();
+    }
+
+    /**
+     * Gives the position set up from FEN the keys of the positions played before it, from the
+     * oldest, so their repetitions count. The undo stack does not get their moves.
+     */
+    public void setPreviousKeys(long[] keys, int count) {
+        history.clear();
+        int first = Math.max(count - halfmoveClock, 0);
+        for (int i = first; i < count; i++) {
+            history.push(keys[i], i - first);
+        }
+        history.push(zobristKey, halfmoveClock);
+    }
+
+    public int getUndoStackSize() {
+        return undoSize;
+    }
+
+    // Last move made by makeMove or Move.NONE
+    public int getLastMove() {
+        return undoSize == 0 ? Move.NONE : undoMoves[undoSize - 1];
+    }
+
+    private void pushUndoRecord(int move, Piece piece, Piece captured, Piece rook) {
+
+        if (undoSize == undoMoves.length) {
+            int capacity = undoSize * 2;
+            undoMoves = Arrays.copyOf(undoMoves, capacity);
+            undoStates = Arrays.copyOf(undoStates, capacity);
+            undoKeys = Arrays.copyOf(undoKeys, capacity);
+            undoAttackMaps = Arrays.copyOf(undoAttackMaps, 2 * capacity);
+            undoMovedPieces = Arrays.copyOf(undoMovedPieces, capacity);
+            undoCapturedPieces = Arrays.copyOf(undoCapturedPieces, capacity);
+        }
+
+        int state = castlingRights | ((enPassantSquare + 1) << 4)
+                | (halfmoveClock << UNDO_HALFMOVE_SHIFT);
+        if (isFirstMove(piece)) {
+            state |= UNDO_PIECE_FIRST_MOVE;
+        }
+        if (isFirstMove(rook)) {
+            state |= UNDO_ROOK_FIRST_MOVE;
+        }
+        for (int color = 0; color < 2; color++) {
+            if (bitBoard.hasAttackMap(color)) {
+                state |= UNDO_ATTACK_MAP << color;
+                undoAttackMaps[2 * undoSize + color] = bitBoard.getAttackMap(color);
+            }
+        }
+
+        undoMoves[undoSize] = move;
+        undoStates[undoSize] = state;
+        undoKeys[undoSize] = zobristKey;
+        undoMovedPieces[undoSize] = piece;
+        undoCapturedPieces[undoSize] = captured;
+        undoSize++;
+    }
+
+    private static boolean isFirstMove(Piece piece) {
+        if (piece instanceof Pawn) {
+            return ((Pawn) piece).isFirstMove();
+        } else if (piece instanceof King) {
+            return ((King) piece).isFirstMove();
+        } else if (piece instanceof Rook) {
+            return ((Rook) piece).isFirstMove();
+        }
+        return false;
+    }
+
+    private static void setFirstMove(Piece piece, boolean firstMove) {
+        if (piece instanceof Pawn) {
+            ((Pawn) piece).setFirstMove(firstMove);
+        } else if (piece instanceof King) {
+            ((King) piece).setFirstMove(firstMove);
+        } else if (piece instanceof Rook) {
+            ((Rook) piece).setFirstMove(firstMove);
+        }
+    }
+
+    private Piece createPromotedPiece(int type, Color color, int x, int y) {
+        switch (PieceType.byIndex(type)) {
+            case KNIGHT:
+                return new Knight(color, x, y);
+            case BISHOP:
+                return new Bishop(color, x, y);
+            case ROOK:
+                return new Rook(color, x, y);
+            default:
+                return new Queen(color, x, y);
+        }
+    }
+
+    /**
+     * Returns the en passant square if a pawn of the capturing color stands next to the pawn
+     * that has skipped it, or -1: as in PolyglotKey, a capture that is not possible does not
+     * make a different position.
+     */
+    private int capturableEnPassantSquare(int square, int capturingColor) {
+        int x = BitBoard.squareX(square);
+        int pawnY = BitBoard.squareY(square) == 2 ? 3 : 4;
+        long neighbours = (x > 0 ? 1L << BitBoard.square(x - 1, pawnY) : 0L)
+                | (x < 7 ? 1L << BitBoard.square(x + 1, pawnY) : 0L);
+        return (bitBoard.getPieces(capturingColor, PieceType.PAWN.ordinal()) & neighbours) != 0L
+                ? square : -1;
+    }
+
+    @Override
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public void setEnPassantSquare(int enPassantSquare) {
+        zobristKey ^= Zobrist.enPassantKey(this.enPassantSquare)
+                ^ Zobrist.enPassantKey(enPassantSquare);
+        this.enPassantSquare = enPassantSquare;
+    }
+
+    @Override
+    public Color getSideToMove() {
+        return sideToMove;
+    }
+
+    public void setSideToMove(Color sideToMove) {
+        zobristKey ^= Zobrist.sideKey(this.sideToMove) ^ Zobrist.sideKey(sideToMove);
+        this.sideToMove = sideToMove;
+    }
+
+    public void switchSideToMove() {
+        setSideToMove(sideToMove == Color.WHITE ? Color.BLACK : Color.WHITE);
+    }
+
+    @Override
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * Castling rights are taken from the firstMove flags of kings and rooks, which are still on
+     * their start cells. Changes of pieces on these cells update them automatically, but after
+     * changing the flags directly this method should be called.
+     */
+    public void updateCastlingRights() {
+
+        int rights = 0;
+        if (canCastle(whiteKing, 4, 7)) {
+            rights |= WHITE_SHORT_CASTLING;
+        }
+        if (canCastle(whiteKing, 4, 0)) {
+            rights |= WHITE_LONG_CASTLING;
+        }
+        if (canCastle(blackKing, 60, 63)) {
+            rights |= BLACK_SHORT_CASTLING;
+        }
+        if (canCastle(blackKing, 60, 56)) {
+            rights |= BLACK_LONG_CASTLING;
+        }
+
+        zobristKey ^= Zobrist.castlingKey(castlingRights) ^ Zobrist.castlingKey(rights);
+        castlingRights = rights;
+    }
+
+    private boolean canCastle(King king, int kingSquare, int rookSquare) {
+        Piece rook = boardCells[rookSquare];
+        return king != null && boardCells[kingSquare] == king && king.isFirstMove()
+                && rook instanceof Rook && rook.getColor() == king.getColor()
+                && ((Rook) rook).isFirstMove();
+    }
+
+    @Override
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    // Key calculated from scratch, it should always be equal to the incremental one
+    public long computeZobristKey() {
+
+        long key = Zobrist.castlingKey(castlingRights) ^ Zobrist.enPassantKey(enPassantSquare)
+                ^ Zobrist.sideKey(sideToMove);
+        for (int square = 0; square < 64; square++) {
+            Piece piece = boardCells[square];
+            if (piece != null) {
+                key ^= Zobrist.pieceKey(piece.getColor().ordinal(), piece.getType().ordinal(),
+                        square);
+            }
+        }
+        return key;
     }
 
     public Piece getCurrentPiece() {
@@ -92,14 +699,22 @@ public class Board {
     }
 
     public int[] getPieceCords(Piece piece) {
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                if (piece.equals(getPieceFromCell(i, j))) {
-                    return new int[]{i, j};
-                }
-            }
+        int square = getPieceSquare(piece);
+        if (square < 0) {
+            return null;
         }
-        return null;
+        return new int[]{BitBoard.squareX(square), BitBoard.squareY(square)};
+    }
+
+    // Square of the piece taken from the index, or -1 if this piece is not on the board
+    public int getPieceSquare(Piece piece) {
+        int square = piece.square;
+        return square >= 0 && boardCells[square] == piece ? square : -1;
+    }
+
+    @Override
+    public int getKingSquare(Color color) {
+        return color == Color.WHITE ? whiteKingSquare : blackKingSquare;
     }
 
 
@@ -112,7 +727,48 @@ public class Board {
     }
 
     public void placePiece(int x, int y, Piece piece){
-        boardCells[x][y] = piece;
+        setSquare(BitBoard.square(x, y), piece);
+    }
+
+    // The only place where cells are changed, so the bitboards always match them
+    private void setSquare(int square, Piece piece) {
+
+        Piece previous = boardCells[square];
+        if (previous != null) {
+            int color = previous.getColor().ordinal();
+            int type = previous.getType().ordinal();
+            bitBoard.removePiece(color, type, square);
+            zobristKey ^= Zobrist.pieceKey(color, type, square);
+
+            // Undo may put the piece back before clearing the cell it was moved to
+            if (previous.square == square) {
+                previous.square = -1;
+                updateKingSquare(previous, -1);
+            }
+        }
+        if (piece != null) {
+            int color = piece.getColor().ordinal();
+            int type = piece.getType().ordinal();
+            bitBoard.addPiece(color, type, square);
+            zobristKey ^= Zobrist.pieceKey(color, type, square);
+            piece.square = square;
+            updateKingSquare(piece, square);
+        }
+        boardCells[square] = piece;
+
+        if ((CASTLING_CELLS & (1L << square)) != 0L) {
+            updateCastlingRights();
+        }
+    }
+
+    private void updateKingSquare(Piece piece, int square) {
+        if (piece instanceof King) {
+            if (piece.getColor() == Color.WHITE) {
+                whiteKingSquare = square;
+            } else {
+                blackKingSquare = square;
+            }
+        }
     }
 
 }
@@ -6,6 +6,12 @@ public enum Color {
 
     private final String color;
 
+    private static final Color[] COLORS = values();
+
+    public static Color byIndex(int index) {
+        return COLORS[index];
+    }
+
     public String getColor() {
         return color;
     }
@@ -0,0 +1,92 @@
+package com.mrk.bsuir.model;
+
+/**
+ * Moves are packed into a single int, so they can be stored in primitive buffers:
+ * bits 0-5 start square, 6-11 end square, 12-14 moving piece type, 15-17 captured piece type
+ * plus one (0 means no capture), 18-20 promotion piece type (0 means no promotion, because a
+ * pawn can never be the result of it) and 21-23 flags.
+ * Squares are numbered as y * 8 + x, piece types are PieceType ordinals.
+ */
+public final class Move {
+
+    public static final int NONE = 0;
+
+    public static final int FLAG_DOUBLE_PUSH = 1;
+    public static final int FLAG_EN_PASSANT = 2;
+    public static final int FLAG_CASTLING = 4;
+
+    private Move() {
+    }
+
+    public static int encode(int from, int to, int piece, int captured, int promotion, int flags) {
+        return from | (to << 6) | (piece << 12) | ((captured + 1) << 15) | (promotion << 18)
+                | (flags << 21);
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static int piece(int move) {
+        return (move >>> 12) & 0x7;
+    }
+
+    // Type of the captured piece or -1 for quiet moves
+    public static int captured(int move) {
+        return ((move >>> 15) & 0x7) - 1;
+    }
+
+    // Type of the promoted piece or 0 (PieceType.PAWN) if the move is not a promotion
+    public static int promotion(int move) {
+        return (move >>> 18) & 0x7;
+    }
+
+    // Same move with another promotion piece type
+    public static int withPromotion(int move, int promotion) {
+        return (move & ~(0x7 << 18)) | (promotion << 18);
+    }
+
+    public static int flags(int move) {
+        return (move >>> 21) & 0x7;
+    }
+
+    public static boolean isCapture(int move) {
+        return ((move >>> 15) & 0x7) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return promotion(move) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (flags(move) & FLAG_EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastling(int move) {
+        return (flags(move) & FLAG_CASTLING) != 0;
+    }
+
+    public static boolean isDoublePush(int move) {
+        return (flags(move) & FLAG_DOUBLE_PUSH) != 0;
+    }
+
+    // Coordinate notation of the move, like e2e4 or e7e8q
+    public static String toNotation(int move) {
+
+        StringBuilder builder = new StringBuilder(5);
+        appendSquare(builder, from(move));
+        appendSquare(builder, to(move));
+        if (isPromotion(move)) {
+            builder.append("pnbrqk".charAt(promotion(move)));
+        }
+        return builder.toString();
+    }
+
+    private static void appendSquare(StringBuilder builder, int square) {
+        builder.append((char) ('a' + (square & 7))).append((char) ('1' + (square >>> 3)));
+    }
+}
@@ -12,6 +12,9 @@ public abstract class Piece{
     //TODO make different coordinated for promoted pieces
     protected final int[] startPosition;
 
+    // Current square of the piece on the board or -1, maintained only by the Board
+    int square = -1;
+
     public Piece(Color color) {
         this.color = color;
         startPosition = new int[2];
@@ -28,6 +31,11 @@ public abstract class Piece{
         return color;
     }
 
+    public abstract PieceType getType();
+
+    // Independent copy with the same identity and flags, used to copy the whole board
+    public abstract Piece copy();
+
     public void setStartPosition(int x, int y) {
         startPosition[0] = x;
         startPosition[1] = y;
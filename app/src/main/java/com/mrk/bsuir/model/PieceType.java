@@ -0,0 +1,14 @@
+package com.mrk.bsuir.model;
+
+public enum PieceType {
+
+    PAWN, KNIGHT, BISHOP, ROOK, QUEEN, KING;
+
+    public static final int COUNT = 6;
+
+    private static final PieceType[] TYPES = values();
+
+    public static PieceType byIndex(int index) {
+        return TYPES[index];
+    }
+}
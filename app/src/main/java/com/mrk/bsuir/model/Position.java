@@ -0,0 +1,28 @@
+package com.mrk.bsuir.model;
+
+/**
+ * Read-only view of a position, which is everything the move generator needs to know about it.
+ * Board is the position of the game and changes with every move, PositionSnapshot is an
+ * immutable copy of it that any amount of threads can read at once.
+ */
+public interface Position {
+
+    BitBoard getBitBoard();
+
+    Color getSideToMove();
+
+    int getCastlingRights();
+
+    // Square behind the pawn that has just made a double step or -1
+    int getEnPassantSquare();
+
+    int getKingSquare(Color color);
+
+    long getZobristKey();
+
+    // Moves since the last capture or pawn move, for the fifty-move rule
+    int getHalfmoveClock();
+
+    // Times the position has occurred in the game, 3 is a draw by repetition
+    int getRepetitionCount();
+}
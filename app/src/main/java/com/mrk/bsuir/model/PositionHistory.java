@@ -0,0 +1,89 @@
+package com.mrk.bsuir.model;
+
+import java.util.Arrays;
+
+/**
+ * Zobrist keys of the positions of the game, one per ply, for the draw by repetition. A position
+ * can repeat only the ones after the last capture or pawn move, so the halfmove clock bounds the
+ * plies that are looked at, and even those are not scanned: the keys are chained in a small hash
+ * table, every bucket keeps its last ply and every ply the one before it in its bucket. How many
+ * times the position has occurred is stored with it, so it is known right after the move and
+ * taking the move back only unlinks it.
+ * Plies are never overwritten while they can still be taken back, so the arrays grow with the
+ * game like the undo stack of Board.
+ */
+public final class PositionHistory {
+
+    private static final int BUCKETS = 256;
+
+    private long[] keys = new long[256];
+    private int[] occurrences = new int[256];
+    private int[] previous = new int[256];
+    private final int[] buckets = new int[BUCKETS];
+    private int size;
+
+    public PositionHistory() {
+        clear();
+    }
+
+    public void clear() {
+        Arrays.fill(buckets, -1);
+        size = 0;
+    }
+
+    /**
+     * Adds the position after a move. The halfmove clock of the position is the number of the
+     * positions before it that it can repeat.
+     */
+    public void push(long key, int halfmoveClock) {
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            occurrences = Arrays.copyOf(occurrences, size * 2);
+            previous = Arrays.copyOf(previous, size * 2);
+        }
+
+        int first = Math.max(size - halfmoveClock, 0);
+        int bucket = (int) key & (BUCKETS - 1);
+        int count = 1;
+        for (int ply = buckets[bucket]; ply >= first; ply = previous[ply]) {
+            if (keys[ply] == key) {
+                count = occurrences[ply] + 1;
+                break;
+            }
+        }
+
+        keys[size] = key;
+        occurrences[size] = count;
+        previous[size] = buckets[bucket];
+        buckets[bucket] = size;
+        size++;
+    }
+
+    // Removes the last position, when its move is taken back
+    public void pop() {
+        size--;
+        buckets[(int) keys[size] & (BUCKETS - 1)] = previous[size];
+    }
+
+    /**
+     * Replaces the history with the positions of the other one that the last of them can
+     * repeat, given its halfmove clock, so a copy of the board knows the repetitions of the game.
+     */
+    public void copyFrom(PositionHistory other, int halfmoveClock) {
+        clear();
+        int first = Math.max(other.size - 1 - halfmoveClock, 0);
+        for (int ply = first; ply < other.size; ply++) {
+            push(other.keys[ply], ply - first);
+        }
+    }
+
+    // Times the last position has occurred since the last capture or pawn move, itself included
+    public int getOccurrences() {
+        return size == 0 ? 0 : occurrences[size - 1];
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,76 @@
+package com.mrk.bsuir.model;
+
+/**
+ * Immutable copy of the position of a Board. Attack maps of both colors are calculated when the
+ * snapshot is taken, so no question asked later writes anything, and the snapshot can be shared
+ * by the UI thread and analysis threads without locks. Changes of the game are made only on the
+ * Board, the snapshot of the new position is taken again after them.
+ */
+public final class PositionSnapshot implements Position {
+
+    private final BitBoard bitBoard;
+    private final Color sideToMove;
+    private final int castlingRights;
+    private final int enPassantSquare;
+    private final int whiteKingSquare;
+    private final int blackKingSquare;
+    private final long zobristKey;
+    private final int halfmoveClock;
+    private final int repetitionCount;
+
+    public PositionSnapshot(Position position) {
+        bitBoard = new BitBoard(position.getBitBoard());
+        bitBoard.getAttackMap(Color.WHITE.ordinal());
+        bitBoard.getAttackMap(Color.BLACK.ordinal());
+
+        sideToMove = position.getSideToMove();
+        castlingRights = position.getCastlingRights();
+        enPassantSquare = position.getEnPassantSquare();
+        whiteKingSquare = position.getKingSquare(Color.WHITE);
+        blackKingSquare = position.getKingSquare(Color.BLACK);
+        zobristKey = position.getZobristKey();
+        halfmoveClock = position.getHalfmoveClock();
+        repetitionCount = position.getRepetitionCount();
+    }
+
+    // Package-private mutators of BitBoard are never called on this copy
+    @Override
+    public BitBoard getBitBoard() {
+        return bitBoard;
+    }
+
+    @Override
+    public Color getSideToMove() {
+        return sideToMove;
+    }
+
+    @Override
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    @Override
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    @Override
+    public int getKingSquare(Color color) {
+        return color == Color.WHITE ? whiteKingSquare : blackKingSquare;
+    }
+
+    @Override
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    @Override
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    @Override
+    public int getRepetitionCount() {
+        return repetitionCount;
+    }
+}
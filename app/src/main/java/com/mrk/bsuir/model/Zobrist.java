@@ -0,0 +1,62 @@
+package com.mrk.bsuir.model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys of Zobrist hashing. The key of a position is the XOR of the keys of every piece on
+ * its square, of the castling rights, of the en passant file and of the side to move, so a move
+ * changes it with a few XOR operations instead of hashing the whole board again.
+ * The seed is fixed, so keys are the same in every run and can be stored.
+ */
+public final class Zobrist {
+
+    private static final long[] PIECE_SQUARE_KEYS = new long[2 * PieceType.COUNT * 64];
+    private static final long[] CASTLING_KEYS = new long[16];
+    private static final long[] EN_PASSANT_FILE_KEYS = new long[8];
+    private static final long BLACK_TO_MOVE_KEY;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x2F5A7D3C9B1E4F6BL);
+        for (int i = 0; i < PIECE_SQUARE_KEYS.length; i++) {
+            PIECE_SQUARE_KEYS[i] = random.nextLong();
+        }
+
+        // Every castling right has its own key, combinations of them are XOR of these keys
+        long[] rightKeys = new long[4];
+        for (int i = 0; i < rightKeys.length; i++) {
+            rightKeys[i] = random.nextLong();
+        }
+        for (int rights = 0; rights < CASTLING_KEYS.length; rights++) {
+            for (int i = 0; i < rightKeys.length; i++) {
+                if ((rights & (1 << i)) != 0) {
+                    CASTLING_KEYS[rights] ^= rightKeys[i];
+                }
+            }
+        }
+
+        for (int i = 0; i < EN_PASSANT_FILE_KEYS.length; i++) {
+            EN_PASSANT_FILE_KEYS[i] = random.nextLong();
+        }
+        BLACK_TO_MOVE_KEY = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    public static long pieceKey(int color, int type, int square) {
+        return PIECE_SQUARE_KEYS[((color * PieceType.COUNT + type) << 6) | square];
+    }
+
+    public static long castlingKey(int castlingRights) {
+        return CASTLING_KEYS[castlingRights];
+    }
+
+    // Key of the en passant square or 0 if there is no such square
+    public static long enPassantKey(int enPassantSquare) {
+        return enPassantSquare < 0 ? 0L : EN_PASSANT_FILE_KEYS[enPassantSquare & 7];
+    }
+
+    public static long sideKey(Color sideToMove) {
+        return sideToMove == Color.BLACK ? BLACK_TO_MOVE_KEY : 0L;
+    }
+}
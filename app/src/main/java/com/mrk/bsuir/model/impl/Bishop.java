@@ -2,10 +2,21 @@ package com.mrk.bsuir.model.impl;
 
 import com.mrk.bsuir.model.Color;
 import com.mrk.bsuir.model.Piece;
+import com.mrk.bsuir.model.PieceType;
 
 public class Bishop extends Piece {
 
     public Bishop(Color color, int startX, int startY) {
         super(color, startX, startY);
     }
+
+    @Override
+    public PieceType getType() {
+        return PieceType.BISHOP;
+    }
+
+    @Override
+    public Bishop copy() {
+        return new Bishop(color, startPosition[0], startPosition[1]);
+    }
 }
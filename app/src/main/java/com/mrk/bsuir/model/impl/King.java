@@ -2,6 +2,7 @@ package com.mrk.bsuir.model.impl;
 
 import com.mrk.bsuir.model.Color;
 import com.mrk.bsuir.model.Piece;
+import com.mrk.bsuir.model.PieceType;
 
 public class King extends Piece {
 
@@ -31,4 +32,17 @@ public class King extends Piece {
     public void setUnderCheck(boolean underCheck) {
         isUnderCheck = underCheck;
     }
+
+    @Override
+    public PieceType getType() {
+        return PieceType.KING;
+    }
+
+    @Override
+    public King copy() {
+        King king = new King(color, startPosition[0], startPosition[1]);
+        king.setFirstMove(firstMove);
+        king.setUnderCheck(isUnderCheck);
+        return king;
+    }
 }
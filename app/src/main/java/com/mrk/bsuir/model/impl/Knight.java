@@ -2,10 +2,21 @@ package com.mrk.bsuir.model.impl;
 
 import com.mrk.bsuir.model.Color;
 import com.mrk.bsuir.model.Piece;
+import com.mrk.bsuir.model.PieceType;
 
 public class Knight extends Piece {
 
     public Knight(Color color, int startX, int startY) {
         super(color, startX, startY);
     }
+
+    @Override
+    public PieceType getType() {
+        return PieceType.KNIGHT;
+    }
+
+    @Override
+    public Knight copy() {
+        return new Knight(color, startPosition[0], startPosition[1]);
+    }
 }
@@ -2,6 +2,7 @@ package com.mrk.bsuir.model.impl;
 
 import com.mrk.bsuir.model.Color;
 import com.mrk.bsuir.model.Piece;
+import com.mrk.bsuir.model.PieceType;
 
 public class Pawn extends Piece {
 
@@ -18,4 +19,16 @@ public class Pawn extends Piece {
     public void setFirstMove(boolean firstMove) {
         this.firstMove = firstMove;
     }
+
+    @Override
+    public PieceType getType() {
+        return PieceType.PAWN;
+    }
+
+    @Override
+    public Pawn copy() {
+        Pawn pawn = new Pawn(color, startPosition[0], startPosition[1]);
+        pawn.setFirstMove(firstMove);
+        return pawn;
+    }
 }
@@ -2,10 +2,21 @@ package com.mrk.bsuir.model.impl;
 
 import com.mrk.bsuir.model.Color;
 import com.mrk.bsuir.model.Piece;
+import com.mrk.bsuir.model.PieceType;
 
 public class Queen extends Piece {
 
     public Queen(Color color, int startX, int startY) {
         super(color, startX, startY);
     }
+
+    @Override
+    public PieceType getType() {
+        return PieceType.QUEEN;
+    }
+
+    @Override
+    public Queen copy() {
+        return new Queen(color, startPosition[0], startPosition[1]);
+    }
 }
@@ -2,6 +2,7 @@ package com.mrk.bsuir.model.impl;
 
 import com.mrk.bsuir.model.Color;
 import com.mrk.bsuir.model.Piece;
+import com.mrk.bsuir.model.PieceType;
 
 
 public class Rook extends Piece {
@@ -20,5 +21,15 @@ public class Rook extends Piece {
         super(color, startX, startY);
     }
 
+    @Override
+    public PieceType getType() {
+        return PieceType.ROOK;
+    }
 
+    @Override
+    public Rook copy() {
+        Rook rook = new Rook(color, startPosition[0], startPosition[1]);
+        rook.setFirstMove(firstMove);
+        return rook;
+    }
 }
@@ -0,0 +1,169 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.exceptions.BitbaseException;
+import com.mrk.bsuir.model.BitBoard;
+import com.mrk.bsuir.model.Position;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Won and drawn positions of the small endgames where one side has a bare king, one bit per
+ * position of the EndgameIndex: set when the side with the pieces wins. The weak side never
+ * wins these endgames, so one bit is the whole result. The tables are built by BitbaseGenerator
+ * and ship with the app as resources; they are read once into arrays of longs, so a probe is the
+ * index of the position and one load.
+ * Layout of a resource: magic, version, entry count, then the bits in longs, deflated.
+ */
+public final class Bitbase {
+
+    // Probe results for the side to move
+    public static final int WIN = 1;
+    public static final int DRAW = 0;
+    public static final int LOSS = -1;
+    public static final int NONE = -2;
+
+    public static final String EXTENSION = ".bb";
+
+    // Tables in the order they are generated, pawns promote into the tables before them
+    public static final String[] MATERIALS = {"KQvK", "KRvK", "KPvK", "KBNvK"};
+
+    private static final String RESOURCE_DIRECTORY = "/com/mrk/bsuir/service/bitbase/";
+
+    private static final int MAGIC = 0x43434242;
+    private static final int VERSION = 1;
+
+    private final EndgameIndex[] indexes;
+    private final long[][] tables;
+    private final int maxPieces;
+
+    // Squares of the pieces of the index, one buffer per thread
+    private final ThreadLocal<int[]> squares = ThreadLocal.withInitial(() -> new int[16]);
+
+    Bitbase(EndgameIndex[] indexes, long[][] tables) {
+        this.indexes = indexes;
+        this.tables = tables;
+        int pieces = 0;
+        for (EndgameIndex index : indexes) {
+            pieces = Math.max(pieces, index.getPieceCount());
+        }
+        this.maxPieces = pieces;
+    }
+
+    // Reads the tables of every material from the resources of the app
+    public static Bitbase load() throws IOException {
+
+        EndgameIndex[] indexes = new EndgameIndex[MATERIALS.length];
+        long[][] tables = new long[MATERIALS.length][];
+        for (int i = 0; i < MATERIALS.length; i++) {
+            indexes[i] = EndgameIndex.of(MATERIALS[i]);
+            String resource = RESOURCE_DIRECTORY + MATERIALS[i] + EXTENSION;
+            try (InputStream in = Bitbase.class.getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new BitbaseException("No bitbase resource " + resource);
+                }
+                tables[i] = read(in, indexes[i]);
+            }
+        }
+        return new Bitbase(indexes, tables);
+    }
+
+    /**
+     * Looks the position up: WIN, DRAW or LOSS for the side to move, or NONE when there is no
+     * table of this material. Positions with castling rights are not in the tables.
+     */
+    public int probe(Position position) {
+
+        BitBoard bitBoard = position.getBitBoard();
+        if (Long.bitCount(bitBoard.getAllOccupancy()) > maxPieces
+                || position.getCastlingRights() != 0) {
+            return NONE;
+        }
+
+        long signature = EndgameIndex.signatureOf(bitBoard);
+        for (int i = 0; i < indexes.length; i++) {
+            EndgameIndex index = indexes[i];
+            if (index.getSignature() == signature || index.getFlippedSignature() == signature) {
+                boolean flip = index.getSignature() != signature;
+                long number = index.index(bitBoard, position.getSideToMove(), flip,
+                        squares.get());
+                if ((tables[i][(int) (number >>> 6)] & (1L << number)) == 0L) {
+                    return DRAW;
+                }
+                // The side with the pieces is white in the index
+                return (number & 1L) == 0L ? WIN : LOSS;
+            }
+        }
+        return NONE;
+    }
+
+    public int getTableCount() {
+        return tables.length;
+    }
+
+    // Bytes of the tables on the heap
+    public long getSizeBytes() {
+        long bytes = 0L;
+        for (long[] table : tables) {
+            bytes += table.length * 8L;
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the bits of the material, bit n of the long n / 64 for the index n, as described in
+     * the class comment. Returns the size of the file.
+     */
+    public static long write(Path file, EndgameIndex index, long[] bits) throws IOException {
+
+        if (bits.length != wordCount(index)) {
+            throw new IllegalArgumentException("Bitbase of " + index.getName() + " should have "
+                    + wordCount(index) + " longs");
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(index.size());
+            DeflaterOutputStream deflating = new DeflaterOutputStream(out, deflater);
+            DataOutputStream words = new DataOutputStream(new BufferedOutputStream(deflating));
+            for (long word : bits) {
+                words.writeLong(word);
+            }
+            words.flush();
+            deflating.finish();
+        } finally {
+            deflater.end();
+        }
+        return Files.size(file);
+    }
+
+    static int wordCount(EndgameIndex index) {
+        return (int) ((index.size() + 63) >>> 6);
+    }
+
+    private static long[] read(InputStream in, EndgameIndex index) throws IOException {
+
+        DataInputStream header = new DataInputStream(in);
+        if (header.readInt() != MAGIC || header.readInt() != VERSION
+                || header.readLong() != index.size()) {
+            throw new BitbaseException("Not a bitbase of " + index.getName());
+        }
+        long[] bits = new long[wordCount(index)];
+        DataInputStream words = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(in)));
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = words.readLong();
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,554 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Attacks;
+import com.mrk.bsuir.model.BitBoard;
+import com.mrk.bsuir.model.PieceType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Builds the tables of Bitbase by retrograde analysis. Every position of the EndgameIndex is
+ * first classified on its own: illegal, mate, stalemate, a capture of a piece by the bare king
+ * (a draw in all of these endgames) or a promotion into a won position of an earlier table.
+ * Black positions keep the count of their moves that are not known to lose yet. Then, from every
+ * new win, the moves are taken back: a white position that can move into a won one is won, a
+ * black one is won when the count of its moves reaches zero. Whatever is not won at the end is
+ * a draw.
+ * Both passes run on a fork-join pool: the first one over ranges of the indexes, the second one
+ * over the wins found by the step before, so the positions of one step are handled in parallel.
+ * States change only by compare and set, so every win is found and taken back exactly once.
+ * The index already joins the mirrored positions, so each of them is analysed only once.
+ * Without pawns the step a win is found at is its distance to the mate in plies, which is also
+ * its distance to zeroing, as a capture by the bare king draws. So the same analysis writes the
+ * entries of TablebaseFile for those materials. Pawn moves reset the distance and the steps do
+ * not follow them, so KPvK has no such table.
+ *
+ * Run with: ./gradlew :benchmark:bitbases --args="directory threads"
+ * or: ./gradlew :benchmark:tablebases --args="directory threads"
+ */
+public final class BitbaseGenerator {
+
+    // States of the positions, black positions that are not known yet keep a count of moves
+    private static final int UNKNOWN = 0;
+    private static final int WIN = -1;
+    private static final int DRAW = -2;
+    private static final int ILLEGAL = -3;
+
+    private static final int WHITE = 0;
+    private static final int BLACK = 1;
+
+    private static final int PAWN = PieceType.PAWN.ordinal();
+    private static final int KNIGHT = PieceType.KNIGHT.ordinal();
+    private static final int BISHOP = PieceType.BISHOP.ordinal();
+    private static final int ROOK = PieceType.ROOK.ordinal();
+    private static final int QUEEN = PieceType.QUEEN.ordinal();
+
+    // Indexes or wins handled by one task of the pool
+    private static final int SPLIT_SIZE = 1 << 12;
+
+    private final ForkJoinPool pool;
+    private final List<EndgameIndex> indexes = new ArrayList<>();
+    private final List<long[]> tables = new ArrayList<>();
+
+    public BitbaseGenerator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Builds the bits of one of Bitbase.MATERIALS. Pawns promote into the queen and rook
+     * tables, so those have to be generated before KPvK.
+     */
+    public long[] generate(String material) {
+
+        Table table = analyse(material);
+        long[] bits = table.toBits();
+        indexes.add(table.index);
+        tables.add(bits);
+        return bits;
+    }
+
+    /**
+     * Builds the entries of the TablebaseFile of one of Bitbase.MATERIALS without pawns: the
+     * result for the side to move and the plies to the mate. The table is not added to
+     * getBitbase.
+     */
+    public byte[] generateTablebase(String material) {
+
+        if (EndgameIndex.of(material).hasPawns()) {
+            throw new IllegalArgumentException("No distances of " + material
+                    + ", its pawn moves reset them");
+        }
+        return analyse(material).toEntries();
+    }
+
+    private Table analyse(String material) {
+
+        if (!Arrays.asList(Bitbase.MATERIALS).contains(material)) {
+            throw new IllegalArgumentException("No bitbase of " + material);
+        }
+        Table table = new Table(EndgameIndex.of(material));
+        pool.invoke(new RangeTask(0, table.states.length(), table::classify));
+
+        // Every step takes back the moves into the wins of the step before
+        int start = 0;
+        int end = table.winCount.get();
+        while (start < end) {
+            table.stepEnds.add(end);
+            pool.invoke(new RangeTask(start, end, table::retract));
+            start = end;
+            end = table.winCount.get();
+        }
+        return table;
+    }
+
+    // Bitbase of every table generated so far
+    public Bitbase getBitbase() {
+        return new Bitbase(indexes.toArray(new EndgameIndex[0]), tables.toArray(new long[0][]));
+    }
+
+    private long[] findTable(String material) {
+        for (int i = 0; i < indexes.size(); i++) {
+            if (indexes.get(i).getName().equals(material)) {
+                return tables.get(i);
+            }
+        }
+        throw new IllegalStateException(material + " has to be generated first");
+    }
+
+    private static boolean isSet(long[] bits, long index) {
+        return (bits[(int) (index >>> 6)] & (1L << index)) != 0L;
+    }
+
+    // Cells attacked by the piece, the pawn is white
+    private static long attacks(int type, int square, long occupied) {
+        if (type == PAWN) {
+            return Attacks.pawnAttacks(WHITE, square);
+        } else if (type == KNIGHT) {
+            return Attacks.knightAttacks(square);
+        } else if (type == BISHOP) {
+            return Attacks.bishopAttacks(square, occupied);
+        } else if (type == ROOK) {
+            return Attacks.rookAttacks(square, occupied);
+        } else if (type == QUEEN) {
+            return Attacks.queenAttacks(square, occupied);
+        }
+        return Attacks.kingAttacks(square);
+    }
+
+    /**
+     * States of the positions of one material while it is analysed. The white pieces come
+     * first and the black king is the last one, as in the index.
+     */
+    private final class Table {
+
+        private final EndgameIndex index;
+        private final int pieces;
+        private final int[] types;
+        private final AtomicIntegerArray states;
+
+        // Wins in the order they were found, the steps are ranges of this array
+        private final int[] wins;
+        private final AtomicInteger winCount = new AtomicInteger();
+        // End of the wins of every step, the first step holds the mates
+        private final List<Integer> stepEnds = new ArrayList<>();
+
+        // Tables of the queen and the rook a pawn promotes to, null without pawns
+        private final EndgameIndex[] promotionIndexes;
+        private final long[][] promotionTables;
+
+        Table(EndgameIndex index) {
+            this.index = index;
+            pieces = index.getPieceCount();
+            types = new int[pieces];
+            for (int i = 0; i < pieces; i++) {
+                types[i] = index.getType(i);
+            }
+            states = new AtomicIntegerArray((int) index.size());
+            wins = new int[(int) index.size()];
+
+            if (index.hasPawns()) {
+                String name = index.getName();
+                promotionIndexes = new EndgameIndex[] {
+                        EndgameIndex.of(name.replace('P', 'Q')),
+                        EndgameIndex.of(name.replace('P', 'R'))
+                };
+                promotionTables = new long[][] {
+                        findTable(promotionIndexes[0].getName()),
+                        findTable(promotionIndexes[1].getName())
+                };
+            } else {
+                promotionIndexes = null;
+                promotionTables = null;
+            }
+        }
+
+        // First pass: the state of every position found without looking at other positions
+        void classify(int from, int to) {
+
+            int[] squares = new int[pieces];
+            int[] buffer = new int[pieces];
+            WinBuffer found = new WinBuffer();
+            for (int i = from; i < to; i++) {
+                int side = index.squaresOf(i, squares);
+                System.arraycopy(squares, 0, buffer, 0, pieces);
+                int state = index.indexOf(buffer, side) != i ? ILLEGAL
+                        : classify(squares, side, buffer);
+                states.set(i, state);
+                if (state == WIN) {
+                    found.add(i);
+                }
+            }
+            found.flush();
+        }
+
+        private int classify(int[] squares, int side, int[] buffer) {
+
+            long occupied = 0L;
+            for (int i = 0; i < pieces; i++) {
+                int square = squares[i];
+                if ((occupied & (1L << square)) != 0L || (types[i] == PAWN
+                        && (BitBoard.squareY(square) == 0 || BitBoard.squareY(square) == 7))) {
+                    return ILLEGAL;
+                }
+                occupied |= 1L << square;
+            }
+            int whiteKing = squares[0];
+            int blackKing = squares[pieces - 1];
+            if ((Attacks.kingAttacks(whiteKing) & (1L << blackKing)) != 0L) {
+                return ILLEGAL;
+            }
+
+            if (side == WHITE) {
+                // Black cannot have left its king in check
+                if ((whiteAttacks(squares, occupied, -1) & (1L << blackKing)) != 0L) {
+                    return ILLEGAL;
+                }
+                return promotesToWin(squares, occupied, buffer) ? WIN : UNKNOWN;
+            }
+
+            // The king can go where no white piece attacks, through its own cell as well
+            long others = occupied & ~(1L << blackKing);
+            long attacked = whiteAttacks(squares, others, -1);
+            long targets = Attacks.kingAttacks(blackKing) & ~Attacks.kingAttacks(whiteKing);
+            int moves = 0;
+            while (targets != 0L) {
+                int target = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                int captured = pieceOn(squares, target);
+                if (captured >= 0) {
+                    // A king and at most a minor piece are left, none of them wins
+                    if ((whiteAttacks(squares, others, captured) & (1L << target)) == 0L) {
+                        return DRAW;
+                    }
+                } else if ((attacked & (1L << target)) == 0L) {
+                    moves++;
+                }
+            }
+            if (moves > 0) {
+                return moves;
+            }
+            return (attacked & (1L << blackKing)) != 0L ? WIN : DRAW;
+        }
+
+        // A pawn on the seventh rank wins if the queen or the rook it becomes wins
+        private boolean promotesToWin(int[] squares, long occupied, int[] buffer) {
+
+            for (int i = 1; i < pieces - 1; i++) {
+                int target = squares[i] + 8;
+                if (types[i] != PAWN || BitBoard.squareY(squares[i]) != 6
+                        || (occupied & (1L << target)) != 0L) {
+                    continue;
+                }
+                for (int j = 0; j < promotionIndexes.length; j++) {
+                    System.arraycopy(squares, 0, buffer, 0, pieces);
+                    buffer[i] = target;
+                    if (isSet(promotionTables[j],
+                            promotionIndexes[j].normalizedIndex(buffer, BLACK))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        // Second pass: every position that moves into one of the wins gets its state updated
+        void retract(int from, int to) {
+
+            int[] squares = new int[pieces];
+            int[] buffer = new int[pieces];
+            WinBuffer found = new WinBuffer();
+            for (int k = from; k < to; k++) {
+                int side = index.squaresOf(wins[k], squares);
+                long occupied = 0L;
+                for (int square : squares) {
+                    occupied |= 1L << square;
+                }
+                if (side == BLACK) {
+                    retractWhite(squares, occupied, buffer, found);
+                } else {
+                    retractBlack(squares, occupied, buffer, found);
+                }
+            }
+            found.flush();
+        }
+
+        // White has just moved into a win, so the position before the move is won too
+        private void retractWhite(int[] squares, long occupied, int[] buffer, WinBuffer found) {
+
+            int blackKing = squares[pieces - 1];
+            for (int i = 0; i < pieces - 1; i++) {
+                int square = squares[i];
+                long origins;
+                if (types[i] == PieceType.KING.ordinal()) {
+                    origins = Attacks.kingAttacks(square) & ~Attacks.kingAttacks(blackKing);
+                } else if (types[i] == PAWN) {
+                    origins = pawnOrigins(square, occupied);
+                } else {
+                    origins = attacks(types[i], square, occupied);
+                }
+                origins &= ~occupied;
+
+                while (origins != 0L) {
+                    System.arraycopy(squares, 0, buffer, 0, pieces);
+                    buffer[i] = Long.numberOfTrailingZeros(origins);
+                    origins &= origins - 1;
+                    int previous = (int) index.normalizedIndex(buffer, WHITE);
+                    if (states.compareAndSet(previous, UNKNOWN, WIN)) {
+                        found.add(previous);
+                    }
+                }
+            }
+        }
+
+        // Black has just moved into a loss, which is one escape less for the position before
+        private void retractBlack(int[] squares, long occupied, int[] buffer, WinBuffer found) {
+
+            int blackKing = squares[pieces - 1];
+            long origins = Attacks.kingAttacks(blackKing) & ~occupied
+                    & ~Attacks.kingAttacks(squares[0]);
+            while (origins != 0L) {
+                System.arraycopy(squares, 0, buffer, 0, pieces);
+                buffer[pieces - 1] = Long.numberOfTrailingZeros(origins);
+                origins &= origins - 1;
+                int previous = (int) index.normalizedIndex(buffer, BLACK);
+
+                int state = states.get(previous);
+                while (state > 0) {
+                    if (states.compareAndSet(previous, state, state == 1 ? WIN : state - 1)) {
+                        if (state == 1) {
+                            found.add(previous);
+                        }
+                        break;
+                    }
+                    state = states.get(previous);
+                }
+            }
+        }
+
+        private long pawnOrigins(int square, long occupied) {
+            int y = BitBoard.squareY(square);
+            if (y < 2 || (occupied & (1L << (square - 8))) != 0L) {
+                return 0L;
+            }
+            long origins = 1L << (square - 8);
+            if (y == 3 && (occupied & (1L << (square - 16))) == 0L) {
+                origins |= 1L << (square - 16);
+            }
+            return origins;
+        }
+
+        // Cells attacked by the white pieces, but the skipped one
+        private long whiteAttacks(int[] squares, long occupied, int skip) {
+            long attacked = 0L;
+            for (int i = 0; i < pieces - 1; i++) {
+                if (i != skip) {
+                    attacked |= attacks(types[i], squares[i], occupied);
+                }
+            }
+            return attacked;
+        }
+
+        private int pieceOn(int[] squares, int square) {
+            for (int i = 0; i < pieces - 1; i++) {
+                if (squares[i] == square) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        long[] toBits() {
+            long[] bits = new long[Bitbase.wordCount(index)];
+            for (int i = 0; i < states.length(); i++) {
+                if (states.get(i) == WIN) {
+                    bits[i >>> 6] |= 1L << i;
+                }
+            }
+            return bits;
+        }
+
+        // Two bytes per position, as TablebaseFile reads them
+        byte[] toEntries() {
+
+            byte[] entries = new byte[states.length() * 2];
+            int[] squares = new int[pieces];
+            for (int i = 0; i < states.length(); i++) {
+                int state = states.get(i);
+                int code;
+                if (state == ILLEGAL) {
+                    code = TablebaseFile.ILLEGAL;
+                } else if (state == WIN) {
+                    code = index.squaresOf(i, squares) == WHITE ? TablebaseFile.WIN
+                            : TablebaseFile.LOSS;
+                } else {
+                    code = TablebaseFile.DRAW;
+                }
+                entries[2 * i] = (byte) code;
+            }
+
+            int start = 0;
+            for (int step = 0; step < stepEnds.size(); step++) {
+                int end = stepEnds.get(step);
+                for (int k = start; k < end; k++) {
+                    entries[2 * wins[k] + 1] = (byte) Math.min(step, TablebaseFile.MAX_DTZ);
+                }
+                start = end;
+            }
+            return entries;
+        }
+
+        // Wins found by one task, added to the table at once when the task ends
+        private final class WinBuffer {
+
+            private int[] buffer = new int[64];
+            private int size;
+
+            void add(int win) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size * 2);
+                }
+                buffer[size++] = win;
+            }
+
+            void flush() {
+                int start = winCount.getAndAdd(size);
+                System.arraycopy(buffer, 0, wins, start, size);
+            }
+        }
+    }
+
+    private interface RangeAction {
+        void run(int from, int to);
+    }
+
+    // Splits the range in halves until they are small enough for one task
+    private static final class RangeTask extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final RangeAction action;
+
+        RangeTask(int from, int to, RangeAction action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_SIZE) {
+                action.run(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(from, middle, action), new RangeTask(middle, to, action));
+            }
+        }
+    }
+
+    /**
+     * Generates every table and writes it to the directory, reporting the time, the wins and
+     * the size of each one. With --tablebases first the files of TablebaseFile are written.
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length > 0 && args[0].equals("--tablebases")) {
+            writeTablebases(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        Path directory = Paths.get(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        Files.createDirectories(directory);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        BitbaseGenerator generator = new BitbaseGenerator(pool);
+        try {
+            for (String material : Bitbase.MATERIALS) {
+                EndgameIndex index = EndgameIndex.of(material);
+                long start = System.nanoTime();
+                long[] bits = generator.generate(material);
+                long millis = (System.nanoTime() - start) / 1_000_000L;
+
+                long wins = 0L;
+                for (long word : bits) {
+                    wins += Long.bitCount(word);
+                }
+                long bytes = Bitbase.write(directory.resolve(material + Bitbase.EXTENSION),
+                        index, bits);
+                System.out.println(material + ": " + index.size() + " positions, " + wins
+                        + " won, " + millis + " ms, " + bits.length * 8L + " bytes in memory, "
+                        + bytes + " bytes written");
+            }
+        } finally {
+            pool.shutdown();
+        }
+        System.out.println("Threads: " + threads);
+    }
+
+    private static void writeTablebases(String[] args) throws IOException {
+
+        Path directory = Paths.get(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        Files.createDirectories(directory);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        BitbaseGenerator generator = new BitbaseGenerator(pool);
+        try {
+            for (String material : Bitbase.MATERIALS) {
+                EndgameIndex index = EndgameIndex.of(material);
+                if (index.hasPawns()) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                byte[] entries = generator.generateTablebase(material);
+                long millis = (System.nanoTime() - start) / 1_000_000L;
+
+                int longest = 0;
+                for (int i = 0; i < entries.length; i += 2) {
+                    if (entries[i] == TablebaseFile.WIN) {
+                        longest = Math.max(longest, entries[i + 1] & 0xFF);
+                    }
+                }
+                Path file = directory.resolve(material + TablebaseFile.EXTENSION);
+                TablebaseFile.write(file, index, entries, TablebaseFile.DEFAULT_BLOCK_ENTRIES);
+                System.out.println(material + ": " + index.size() + " positions, longest win "
+                        + longest + " plies, " + millis + " ms, " + Files.size(file)
+                        + " bytes written");
+            }
+        } finally {
+            pool.shutdown();
+        }
+        System.out.println("Threads: " + threads);
+    }
+}
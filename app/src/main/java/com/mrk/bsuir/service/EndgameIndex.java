@@ -0,0 +1,215 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.BitBoard;
+import com.mrk.bsuir.model.Color;
+import com.mrk.bsuir.model.PieceType;
+
+/**
+ * Numbering of the positions of one material, like KQvK, for the endgame tables. Pieces are
+ * taken in a fixed order: the white king, the other white pieces from the queen to the pawn, the
+ * black king and the black pieces. The index is the square of every piece and the side to move.
+ * Positions that are mirrors of each other share one index: the white king is always brought to
+ * the files a-d, and without pawns to the ranks 1-4 as well. Pieces of the same type are sorted
+ * by their squares, so their order does not matter either.
+ * The position of the other colors, KvKQ for KQvK, is found by flipping the board and the colors.
+ */
+public final class EndgameIndex {
+
+    private static final String PIECE_LETTERS = "PNBRQK";
+
+    private final String name;
+    private final int[] colors;
+    private final int[] types;
+    private final boolean pawns;
+    private final long signature;
+    private final long flippedSignature;
+    private final long size;
+
+    private EndgameIndex(String name, int[] colors, int[] types) {
+        this.name = name;
+        this.colors = colors;
+        this.types = types;
+
+        boolean hasPawns = false;
+        long materialSignature = 0L;
+        long flipped = 0L;
+        for (int i = 0; i < types.length; i++) {
+            hasPawns |= types[i] == PieceType.PAWN.ordinal();
+            materialSignature += BitBoard.materialOf(colors[i], types[i]);
+            flipped += BitBoard.materialOf(1 - colors[i], types[i]);
+        }
+        this.pawns = hasPawns;
+        this.signature = materialSignature;
+        this.flippedSignature = flipped;
+
+        long positions = hasPawns ? 32L : 16L;
+        for (int i = 1; i < types.length; i++) {
+            positions *= 64L;
+        }
+        this.size = positions * 2L;
+    }
+
+    /**
+     * Parses the name of the material: the white pieces, "v" and the black pieces, both starting
+     * with the king, like KBNvK or KPvKR.
+     */
+    public static EndgameIndex of(String name) {
+
+        int separator = name.indexOf('v');
+        if (separator < 1 || name.charAt(0) != 'K' || separator + 1 >= name.length()
+                || name.charAt(separator + 1) != 'K' || name.length() > 12) {
+            throw new IllegalArgumentException("Wrong material " + name);
+        }
+
+        int count = name.length() - 1;
+        int[] colors = new int[count];
+        int[] types = new int[count];
+        int piece = 0;
+        for (int color = 0; color < 2; color++) {
+            int start = color == 0 ? 0 : separator + 1;
+            int end = color == 0 ? separator : name.length();
+            // Kings first, then from the queen to the pawn, whatever order the name has
+            for (int type = PieceType.KING.ordinal(); type >= 0; type--) {
+                for (int i = start; i < end; i++) {
+                    int letter = PIECE_LETTERS.indexOf(name.charAt(i));
+                    if (letter < 0) {
+                        throw new IllegalArgumentException("Wrong material " + name);
+                    }
+                    if (letter == type) {
+                        colors[piece] = color;
+                        types[piece] = type;
+                        piece++;
+                    }
+                }
+            }
+        }
+        return new EndgameIndex(name, colors, types);
+    }
+
+    /**
+     * Count of every piece type of both colors, four bits each. Equal signatures mean the same
+     * material, so a table is found without building its name. BitBoard keeps it up to date.
+     */
+    public static long signatureOf(BitBoard bitBoard) {
+        return bitBoard.getMaterialSignature();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPieceCount() {
+        return types.length;
+    }
+
+    public boolean hasPawns() {
+        return pawns;
+    }
+
+    // Signature of this material and of the one with the colors swapped
+    public long getSignature() {
+        return signature;
+    }
+
+    public long getFlippedSignature() {
+        return flippedSignature;
+    }
+
+    // Amount of indexes, with the illegal positions among them
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Index of the position, which should have this material, or the flipped one when
+     * flipColors is set. The squares array is a buffer of getPieceCount() cells.
+     */
+    public long index(BitBoard bitBoard, Color sideToMove, boolean flipColors, int[] squares) {
+
+        int piece = 0;
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0 && types[i] == types[i - 1] && colors[i] == colors[i - 1]) {
+                continue;
+            }
+            long pieces = bitBoard.getPieces(flipColors ? 1 - colors[i] : colors[i], types[i]);
+            while (pieces != 0L) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                squares[piece++] = flipColors ? square ^ 56 : square;
+                pieces &= pieces - 1;
+            }
+        }
+        int side = sideToMove.ordinal();
+        if (flipColors) {
+            side = 1 - side;
+        }
+        return normalizedIndex(squares, side);
+    }
+
+    /**
+     * Index of the squares in the order of the pieces, of any of the mirrored positions. The
+     * squares are mirrored and sorted in place.
+     */
+    public long normalizedIndex(int[] squares, int side) {
+
+        int mirror = 0;
+        if (BitBoard.squareX(squares[0]) >= 4) {
+            mirror |= 7;
+        }
+        if (!pawns && BitBoard.squareY(squares[0]) >= 4) {
+            mirror |= 56;
+        }
+        if (mirror != 0) {
+            for (int i = 0; i < types.length; i++) {
+                squares[i] ^= mirror;
+            }
+        }
+        return indexOf(squares, side);
+    }
+
+    /**
+     * Index of the squares in the order of the pieces, the white king should already be on the
+     * files a-d, and the ranks 1-4 without pawns.
+     */
+    public long indexOf(int[] squares, int side) {
+
+        sortSameTypes(squares);
+        long index = BitBoard.squareY(squares[0]) * 4 + BitBoard.squareX(squares[0]);
+        for (int i = 1; i < types.length; i++) {
+            index = index * 64 + squares[i];
+        }
+        return index * 2 + side;
+    }
+
+    // Reverse of indexOf: writes the squares and returns the side to move
+    public int squaresOf(long index, int[] squares) {
+
+        int side = (int) (index & 1);
+        index >>>= 1;
+        for (int i = types.length - 1; i > 0; i--) {
+            squares[i] = (int) (index & 63);
+            index >>>= 6;
+        }
+        squares[0] = BitBoard.square((int) (index & 3), (int) (index >>> 2));
+        return side;
+    }
+
+    public int getColor(int piece) {
+        return colors[piece];
+    }
+
+    public int getType(int piece) {
+        return types[piece];
+    }
+
+    // Insertion sort of the runs of equal pieces, there are at most a few of them
+    private void sortSameTypes(int[] squares) {
+        for (int i = 2; i < types.length; i++) {
+            for (int j = i; j > 1 && types[j] == types[j - 1] && colors[j] == colors[j - 1]
+                    && squares[j] < squares[j - 1]; j--) {
+                int square = squares[j];
+                squares[j] = squares[j - 1];
+                squares[j - 1] = square;
+            }
+        }
+    }
+}
@@ -1,205 +1,176 @@
 package com.mrk.bsuir.service;
 
 import com.mrk.bsuir.exceptions.LoggingException;
+import com.mrk.bsuir.model.BitBoard;
 import com.mrk.bsuir.model.Board;
-import com.mrk.bsuir.model.Color;
-import com.mrk.bsuir.model.Piece;
-import com.mrk.bsuir.model.impl.Bishop;
-import com.mrk.bsuir.model.impl.King;
-import com.mrk.bsuir.model.impl.Knight;
-import com.mrk.bsuir.model.impl.Pawn;
-import com.mrk.bsuir.model.impl.Queen;
-import com.mrk.bsuir.model.impl.Rook;
-
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
+import com.mrk.bsuir.model.Move;
+import com.mrk.bsuir.model.PieceType;
+
+import java.util.Arrays;
+
+/**
+ * Record of the game: every played move in the encoding of the Move class, kept in a growable
+ * int array. The move already holds the moving, captured and promoted piece types, so nothing
+ * else is stored, and the notation of a move is written only when it is asked for.
+ * Check and checkmate are found after the move is logged, they take two bits above the move.
+ * Undone moves stay in the record until another move is logged, so they can be redone.
+ */
 public class GameLogService {
 
-    private final Map<Integer, String> gameMovesRecord;
-    private final Map<Class<? extends Piece>, String> piecesSymbols;
-    private final Map<Integer, Piece> beatenPieces;
+    private static final int MARK_CHECK = 1 << 24;
+    private static final int MARK_CHECKMATE = 1 << 25;
+    private static final int MOVE_MASK = MARK_CHECK - 1;
+
+    private static final String PIECE_SYMBOLS = "PNBRQK";
+
+    private int[] gameMovesRecord = new int[64];
     private int currentMove;
-    private final Board board;
+    // Moves in the record including the undone ones
+    private int recordedMoves;
+    // Position before the first move, as FEN
+    private String startFen = Board.START_FEN;
 
 
-    public GameLogService(Board board) {
-        this.board = board;
+    public GameLogService() {
         currentMove = 0;
-        piecesSymbols = new HashMap<>();
-        gameMovesRecord = new HashMap<>();
-        beatenPieces = new HashMap<>();
-
-        piecesSymbols.put(Pawn.class, "P");
-        piecesSymbols.put(Knight.class, "N");
-        piecesSymbols.put(Bishop.class, "B");
-        piecesSymbols.put(Rook.class, "R");
-        piecesSymbols.put(Queen.class, "Q");
-        piecesSymbols.put(King.class, "K");
     }
 
-    public void logMove(int startX, int startY, int endX, int endY, Piece movingPiece,
-                        Piece capturedPiece, Piece promotedPiece, List<Action> actions) {
+    public void logMove(int move) {
 
-        if (actions == null || (actions.contains(Action.PROMOTION) && promotedPiece == null) ||
-                movingPiece == null ||
-                (actions.contains(Action.CAPTURE) && capturedPiece == null)) {
+        if (move == Move.NONE) {
             throw new LoggingException("Error: cannot log");
         }
+        if (currentMove == gameMovesRecord.length) {
+            gameMovesRecord = Arrays.copyOf(gameMovesRecord, currentMove * 2);
+        }
+        gameMovesRecord[currentMove++] = move;
+        recordedMoves = currentMove;
+    }
 
-        StringBuilder moveBuilder = new StringBuilder();
-
-        if (actions.contains(Action.LONG_CASTLING)) {
-            moveBuilder.append(Action.LONG_CASTLING.getLoggingSymbol());
-        } else if (actions.contains(Action.SHORT_CASTLING)) {
-            moveBuilder.append(Action.SHORT_CASTLING.getLoggingSymbol());
-        } else {
-
-            moveBuilder.append(piecesSymbols.get(movingPiece.getClass()));
-            moveBuilder.append(startX).append(startY);
+    // Adds the check or checkmate symbol to the last move, the status is found after it is logged
+    public void markLastMove(Action action) {
 
-            if (actions.contains(Action.CAPTURE)) {
+        if (currentMove == 0) {
+            throw new LoggingException("Error: nothing to mark");
+        }
+        gameMovesRecord[currentMove - 1] |= action == Action.CHECKMATE ? MARK_CHECKMATE
+                : MARK_CHECK;
+    }
 
-                moveBuilder.append(Action.CAPTURE.getLoggingSymbol());
-                moveBuilder.append(piecesSymbols.get(capturedPiece.getClass()));
-                beatenPieces.put(currentMove, capturedPiece);
-            } else if (actions.contains(Action.EN_PASSANT)) {
+    // Forgets the last logged move, the position itself is taken back by Board.unmakeMove
+    public void undoLastMove() {
 
-                moveBuilder.append(Action.EN_PASSANT.getLoggingSymbol());
-                beatenPieces.put(currentMove, capturedPiece);
-            }
-            moveBuilder.append(endX).append(endY);
+        if (currentMove == 0) {
+            throw new LoggingException("Error: nothing to undo");
+        }
+        currentMove--;
+    }
 
-            if (actions.contains(Action.PROMOTION)) {
+    // Brings back the next undone move, the position is changed by the caller
+    public void redoMove() {
 
-                moveBuilder.append(Action.PROMOTION.getLoggingSymbol());
-                moveBuilder.append(piecesSymbols.get(promotedPiece.getClass()));
-            }
-            if (actions.contains(Action.CHECKMATE)) {
-                moveBuilder.append(Action.CHECKMATE.getLoggingSymbol());
-            } else if (actions.contains(Action.CHECK)) {
-                moveBuilder.append(Action.CHECK.getLoggingSymbol());
-            }
+        if (currentMove == recordedMoves) {
+            throw new LoggingException("Error: nothing to redo");
         }
-
-        gameMovesRecord.put(currentMove, moveBuilder.toString());
         currentMove++;
     }
 
-    public Map<Integer[], Piece> getPreviousPosition() {
-
-        String lastMove = getMoveByNumber(currentMove - 1);
-        Map<Integer[], Piece> previousPosition = new HashMap<>();
+    /**
+     * Moves the current position of the record to the given number of moves, keeping the undone
+     * moves after it. Used by GameNavigator, which changes the position itself.
+     */
+    public void setCurrentMove(int moveNumber) {
 
-        Color previousColor = (currentMove - 1) % 2 == 0 ? Color.WHITE : Color.BLACK;
-        Color currentColor = (currentMove - 1) % 2 == 0 ? Color.BLACK : Color.WHITE;
-
-        King king = board.getKingOfThisColor(previousColor);
-        King enemyKing = board.getKingOfAnotherColor(previousColor);
-
-        if (lastMove.endsWith("+")) {
-            enemyKing.setUnderCheck(false);
+        if (moveNumber < 0 || moveNumber > recordedMoves) {
+            throw new LoggingException("Cannot go to move " + moveNumber);
         }
+        currentMove = moveNumber;
+    }
 
-        if (lastMove.startsWith("0-")) {
-
-            int rookY = previousColor.equals(Color.WHITE) ? 0 : 7;
-            int rookX = lastMove.length() > 4 ? 0 : 7;
-
-            Rook rook = new Rook(previousColor, rookX, rookY);
-            rook.setFirstMove(true);
-            king.setFirstMove(true);
+    // Encoded move with the given number, also an undone one, without the check marks
+    public int getMove(int moveNumber) {
 
-            int kingX = board.getPieceCords(king)[0];
-            int kingY = board.getPieceCords(king)[1];
-            int rookCurrentX = rookX == 0 ? 3 : 5;
+        if (moveNumber < 0 || moveNumber >= recordedMoves) {
+            throw new LoggingException("Cannot find move " + moveNumber);
+        }
+        return gameMovesRecord[moveNumber] & MOVE_MASK;
+    }
 
-            previousPosition.put(new Integer[]{kingX, kingY}, null);
-            previousPosition.put(new Integer[]{rookCurrentX, rookY}, null);
-            previousPosition.put(new Integer[]{4, rookY}, king);
-            previousPosition.put(new Integer[]{rookCurrentX, rookY}, rook);
+    // Type of the piece captured by the move or null if nothing was captured
+    public PieceType findBeatenPiece(int deathMove) {
+        int captured = Move.captured(getMove(deathMove));
+        return captured < 0 ? null : PieceType.byIndex(captured);
+    }
 
-            currentMove--;
-            return previousPosition;
+    public String getMoveByNumber(int moveNumber) {
+        if (moveNumber < 0 || moveNumber >= currentMove) {
+            return null;
         }
+        return toLogNotation(gameMovesRecord[moveNumber]);
+    }
 
-        int startX = Character.digit(lastMove.charAt(1), 10);
-        int startY = Character.digit(lastMove.charAt(2), 10);
-        int pawnMovementDirection = currentColor.equals(Color.WHITE) ? 1 : -1;
-
-        if (lastMove.contains("e.p.")) {
 
-            int endX = Character.digit(lastMove.charAt(7), 10);
-            int endY = Character.digit(lastMove.charAt(8), 10);
+    public String getLastMove() {
+        if (currentMove == 0) return null;
+        return getMoveByNumber(currentMove - 1);
+    }
 
-            Pawn attackerPawn = (Pawn) board.getPieceFromCell(endX, endY);
-            Pawn beatenPawn = (Pawn) findBeatenPiece(currentMove - 1);
+    public int getCurrentMove() {
+        return currentMove;
+    }
 
-            previousPosition.put(new Integer[]{endX, endY + pawnMovementDirection}, beatenPawn);
-            previousPosition.put(new Integer[]{endX, endY}, null);
-            previousPosition.put(new Integer[]{startX, startY}, attackerPawn);
+    public int getRecordedMoves() {
+        return recordedMoves;
+    }
 
-            currentMove--;
-            return previousPosition;
-        }
+    public String getStartFen() {
+        return startFen;
+    }
 
-        if (lastMove.contains("x")) {
-            int endX = Character.digit(lastMove.charAt(5), 10);
-            int endY = Character.digit(lastMove.charAt(6), 10);
+    public void setStartFen(String startFen) {
+        this.startFen = startFen;
+    }
 
-            Piece beatenPiece = findBeatenPiece(currentMove - 1);
-            Piece attackerPiece = board.getPieceFromCell(endX, endY);
+    /**
+     * Notation of the log: the piece, its start and end cells as x and y numbers, the captured
+     * piece after "x", en passant, promotion, check and checkmate marks, or 0-0 and 0-0-0.
+     */
+    private static String toLogNotation(int entry) {
 
-            previousPosition.put(new Integer[]{startX, startY}, attackerPiece);
-            previousPosition.put(new Integer[]{endX, endY}, beatenPiece);
-        }
+        int move = entry & MOVE_MASK;
+        StringBuilder moveBuilder = new StringBuilder(12);
 
-        int endX = Character.digit(lastMove.charAt(3), 10);
-        int endY = Character.digit(lastMove.charAt(4), 10);
+        if (Move.isCastling(move)) {
+            moveBuilder.append(Move.to(move) < Move.from(move)
+                    ? Action.LONG_CASTLING.getLoggingSymbol()
+                    : Action.SHORT_CASTLING.getLoggingSymbol());
+        } else {
 
-        if (lastMove.contains("=") && previousPosition.isEmpty()) {
+            int from = Move.from(move);
+            int to = Move.to(move);
+            moveBuilder.append(PIECE_SYMBOLS.charAt(Move.piece(move)));
+            moveBuilder.append(BitBoard.squareX(from)).append(BitBoard.squareY(from));
 
-            Pawn pawn = (Pawn) beatenPieces.get(currentMove - 1);
-            previousPosition.put(new Integer[]{startX, startY}, pawn);
-            previousPosition.put(new Integer[]{endX, endY}, null);
-        }
+            if (Move.isEnPassant(move)) {
+                moveBuilder.append(Action.EN_PASSANT.getLoggingSymbol());
+            } else if (Move.isCapture(move)) {
+                moveBuilder.append(Action.CAPTURE.getLoggingSymbol());
+                moveBuilder.append(PIECE_SYMBOLS.charAt(Move.captured(move)));
+            }
+            moveBuilder.append(BitBoard.squareX(to)).append(BitBoard.squareY(to));
 
-        if (previousPosition.isEmpty()) {
-            Piece lastMovedPiece = board.getPieceFromCell(endX, endY);
-            previousPosition.put(new Integer[]{startX, startY}, lastMovedPiece);
-            previousPosition.put(new Integer[]{endX, endY}, null);
-            if(lastMovedPiece instanceof Pawn && Math.abs(startY - endY) == 2){
-                ((Pawn) lastMovedPiece).setFirstMove(true);
+            if (Move.isPromotion(move)) {
+                moveBuilder.append(Action.PROMOTION.getLoggingSymbol());
+                moveBuilder.append(PIECE_SYMBOLS.charAt(Move.promotion(move)));
             }
         }
 
-        currentMove--;
-        return previousPosition;
-    }
-
-    public Piece findBeatenPiece(int deathMove) {
-
-        Piece beatenPiece = beatenPieces.get(deathMove);
-        if (beatenPiece == null) {
-            throw new LoggingException("Cannot find beaten piece");
+        if ((entry & MARK_CHECKMATE) != 0) {
+            moveBuilder.append(Action.CHECKMATE.getLoggingSymbol());
+        } else if ((entry & MARK_CHECK) != 0) {
+            moveBuilder.append(Action.CHECK.getLoggingSymbol());
         }
-
-        return beatenPiece;
-    }
-
-    public String getMoveByNumber(int moveNumber) {
-        return gameMovesRecord.get(moveNumber);
-    }
-
-
-    public String getLastMove() {
-        if (currentMove == 0) return null;
-        return gameMovesRecord.get(currentMove - 1);
-    }
-
-    public int getCurrentMove() {
-        return currentMove;
+        return moveBuilder.toString();
     }
 
 }
@@ -0,0 +1,141 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Board;
+
+import java.util.Arrays;
+
+/**
+ * Moves the board to any ply of the game, back or forward. The moves are taken from the game
+ * record, and every interval plies the position is saved as FEN. A jump sets up the nearest
+ * checkpoint before the ply and replays at most interval - 1 moves, so it costs the same at any
+ * length of the game. Short steps back and forward use unmakeMove and makeMove instead.
+ * The key of every ply is kept too and given to the board after a checkpoint is set up, so the
+ * repetitions of the positions before the checkpoint still count.
+ * The board and the record are changed only through the navigator once it is created.
+ */
+public class GameNavigator {
+
+    public static final int DEFAULT_INTERVAL = 16;
+
+    private final Board board;
+    private final GameLogService record;
+    private final int interval;
+
+    // Position at every ply multiple of the interval, as far as the record is known
+    private String[] checkpoints = new String[16];
+    private int checkpointCount;
+
+    // Zobrist key of the position at every ply of the record
+    private long[] keys = new long[64];
+
+    // First ply that can be reached by unmakeMove: the board was set up at it
+    private int undoBase;
+
+    public GameNavigator(Board board, GameLogService record) {
+        this(board, record, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * The board should be in the position of the current move of the record, which has no moves
+     * for now. Its position becomes the start position of the record.
+     */
+    public GameNavigator(Board board, GameLogService record, int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Interval should be positive: " + interval);
+        }
+        if (record.getRecordedMoves() != 0) {
+            throw new IllegalArgumentException("Record should be empty");
+        }
+        this.board = board;
+        this.record = record;
+        this.interval = interval;
+        checkpoints[0] = board.getFen();
+        record.setStartFen(checkpoints[0]);
+        checkpointCount = 1;
+        keys[0] = board.getZobristKey();
+    }
+
+    public int getPly() {
+        return record.getCurrentMove();
+    }
+
+    public int getLength() {
+        return record.getRecordedMoves();
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Makes a new legal move in the current position. Moves undone before it are dropped from
+     * the record together with their checkpoints.
+     */
+    public void play(int move) {
+
+        int ply = getPly();
+        checkpointCount = Math.min(checkpointCount, ply / interval + 1);
+        board.makeMove(move);
+        record.logMove(move);
+        if (ply + 1 == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+        }
+        keys[ply + 1] = board.getZobristKey();
+
+        if ((ply + 1) % interval == 0) {
+            if (checkpointCount == checkpoints.length) {
+                checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+            }
+            checkpoints[checkpointCount++] = board.getFen();
+        }
+    }
+
+    public boolean canGoBack() {
+        return getPly() > 0;
+    }
+
+    public boolean canGoForward() {
+        return getPly() < getLength();
+    }
+
+    public void back() {
+        seek(getPly() - 1);
+    }
+
+    public void forward() {
+        seek(getPly() + 1);
+    }
+
+    /**
+     * Sets up the position after the given number of plies. At most interval - 1 moves are made
+     * or taken back, besides setting up a checkpoint.
+     */
+    public void seek(int ply) {
+
+        int current = getPly();
+        if (ply < 0 || ply > getLength()) {
+            throw new IllegalArgumentException("No ply " + ply + " in the game of " + getLength());
+        }
+        if (ply == current) {
+            return;
+        }
+
+        if (ply < current && ply >= undoBase && current - ply < interval) {
+            for (int i = current; i > ply; i--) {
+                board.unmakeMove();
+            }
+        } else {
+            int checkpoint = ply / interval * interval;
+            if (ply < current || checkpoint > current) {
+                board.setFen(checkpoints[ply / interval]);
+                board.setPreviousKeys(keys, checkpoint);
+                undoBase = checkpoint;
+                current = checkpoint;
+            }
+            for (int i = current; i < ply; i++) {
+                board.makeMove(record.getMove(i));
+            }
+        }
+        record.setCurrentMove(ply);
+    }
+}
@@ -0,0 +1,57 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Color;
+import com.mrk.bsuir.model.Position;
+
+/**
+ * State of the side to move: whether it is in check, whether it has any legal move left and
+ * whether the game is drawn by the rules. Finding it can take a full move generation, so the game
+ * asks for it on a background thread, passing a PositionSnapshot that no later move can change.
+ * Draws other than stalemate are read from counters the board keeps after every move, the game
+ * is never looked through again.
+ */
+public enum GameStatus {
+
+    NORMAL, CHECK, CHECKMATE, STALEMATE, REPETITION, FIFTY_MOVES, INSUFFICIENT_MATERIAL;
+
+    // Occurrences of one position that draw the game
+    public static final int REPETITION_COUNT = 3;
+
+    // Plies without a capture or a pawn move that draw the game
+    public static final int FIFTY_MOVE_PLIES = 100;
+
+    public static GameStatus of(Position position) {
+
+        MoveGenerator moveGenerator = new MoveGenerator(position);
+        Color sideToMove = position.getSideToMove();
+        boolean inCheck = moveGenerator.isInCheck(sideToMove);
+
+        // A mate on the last move before a draw still wins
+        if (!moveGenerator.hasLegalMove(sideToMove)) {
+            return inCheck ? CHECKMATE : STALEMATE;
+        }
+        if (position.getRepetitionCount() >= REPETITION_COUNT) {
+            return REPETITION;
+        }
+        if (position.getHalfmoveClock() >= FIFTY_MOVE_PLIES) {
+            return FIFTY_MOVES;
+        }
+        if (position.getBitBoard().isInsufficientMaterial()) {
+            return INSUFFICIENT_MATERIAL;
+        }
+        return inCheck ? CHECK : NORMAL;
+    }
+
+    public boolean isCheck() {
+        return this == CHECK || this == CHECKMATE;
+    }
+
+    public boolean isDraw() {
+        return this == STALEMATE || this == REPETITION || this == FIFTY_MOVES
+                || this == INSUFFICIENT_MATERIAL;
+    }
+
+    public boolean isGameOver() {
+        return this == CHECKMATE || isDraw();
+    }
+}
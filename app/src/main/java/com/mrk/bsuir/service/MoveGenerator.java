@@ -0,0 +1,399 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Attacks;
+import com.mrk.bsuir.model.BitBoard;
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Color;
+import com.mrk.bsuir.model.Move;
+import com.mrk.bsuir.model.PieceType;
+import com.mrk.bsuir.model.Position;
+
+/**
+ * This class generates every legal move of one color into a primitive int buffer, using the move
+ * encoding of the Move class. Castling, en passant and all four promotions are included.
+ * Pseudo-legal moves are produced from the bitboards and then filtered by checking that the own
+ * king is not attacked after the move, so no piece is ever moved on the board during generation.
+ * MoveService.allowPieceMove answers through this class, so both of them always agree.
+ * Pieces giving check and pinned pieces are found once per position and kept until it changes,
+ * so the legality of a move other than a king move or en passant is two mask checks: the move
+ * stops the check, and a pinned piece stays on the line of its pin.
+ * The generator only reads the position. It keeps a move buffer of its own, so every thread
+ * uses a separate generator, while a PositionSnapshot can be shared by all of them.
+ */
+public class MoveGenerator {
+
+    // No legal chess position has more than 218 moves
+    public static final int MAX_MOVES = 256;
+
+    private static final int PAWN = PieceType.PAWN.ordinal();
+    private static final int KNIGHT = PieceType.KNIGHT.ordinal();
+    private static final int BISHOP = PieceType.BISHOP.ordinal();
+    private static final int ROOK = PieceType.ROOK.ordinal();
+    private static final int QUEEN = PieceType.QUEEN.ordinal();
+    private static final int KING = PieceType.KING.ordinal();
+
+    private final Position position;
+    private final int[] moveBuffer = new int[MAX_MOVES];
+
+    // King safety of one color in the position with the key and occupancy below
+    private boolean safetyValid;
+    private long safetyKey;
+    private long safetyOccupancy;
+    private int safetyColor;
+    private int safetyKingSquare;
+    private long checkers;
+    private long pinned;
+
+    // Cells a move of a piece other than king should end on: all, the block or capture of the
+    // only checker, or none in double check
+    private long checkMask;
+
+    public MoveGenerator(Position position) {
+        this.position = position;
+    }
+
+    /**
+     * Writes all legal moves of the color into the buffer starting from index 0 and returns their
+     * amount. The buffer should have at least MAX_MOVES cells.
+     */
+    public int generateLegalMoves(Color color, int[] moves) {
+
+        int us = color.ordinal();
+        int count = generatePseudoLegalMoves(us, moves);
+
+        int legalCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (isLegal(moves[i], us)) {
+                moves[legalCount++] = moves[i];
+            }
+        }
+        return legalCount;
+    }
+
+    public int generateLegalMoves(int[] moves) {
+        return generateLegalMoves(position.getSideToMove(), moves);
+    }
+
+    /**
+     * Writes only the legal captures and promotions of the side to move, for the quiescence
+     * search. Quiet moves are dropped before the legality check, the most expensive part.
+     */
+    public int generateLegalCaptures(int[] moves) {
+
+        int us = position.getSideToMove().ordinal();
+        int count = generatePseudoLegalMoves(us, moves);
+
+        int legalCount = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if ((Move.isCapture(move) || Move.isPromotion(move)) && isLegal(move, us)) {
+                moves[legalCount++] = move;
+            }
+        }
+        return legalCount;
+    }
+
+    public boolean hasLegalMove(Color color) {
+
+        int us = color.ordinal();
+        int count = generatePseudoLegalMoves(us, moveBuffer);
+
+        for (int i = 0; i < count; i++) {
+            if (isLegal(moveBuffer[i], us)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the legal move of the color between two squares or Move.NONE. In case of promotion
+     * the queen promotion is returned, the choice of the piece is made by the player later.
+     */
+    public int findLegalMove(int from, int to, Color color) {
+
+        int us = color.ordinal();
+        int count = generatePseudoLegalMoves(us, moveBuffer);
+
+        for (int i = 0; i < count; i++) {
+            int move = moveBuffer[i];
+            if (Move.from(move) == from && Move.to(move) == to && isLegal(move, us)) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    // Pieces of the other color checking the king of this color
+    public long getCheckers(Color color) {
+        updateKingSafety(color.ordinal());
+        return checkers;
+    }
+
+    // Pieces of this color that cannot leave the line between their king and an enemy slider
+    public long getPinnedPieces(Color color) {
+        updateKingSafety(color.ordinal());
+        return pinned;
+    }
+
+    public boolean isInCheck(Color color) {
+        int us = color.ordinal();
+        return position.getBitBoard().isSquareAttacked(position.getKingSquare(color), us ^ 1);
+    }
+
+    private int generatePseudoLegalMoves(int us, int[] moves) {
+
+        BitBoard bitBoard = position.getBitBoard();
+        long own = bitBoard.getOccupancy(us);
+        long occupied = bitBoard.getAllOccupancy();
+        long targets = ~own;
+        int count = 0;
+
+        count = generatePawnMoves(us, moves, count);
+
+        long knights = bitBoard.getPieces(us, KNIGHT);
+        while (knights != 0L) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            count = addMoves(from, KNIGHT, Attacks.knightAttacks(from) & targets, moves, count);
+        }
+
+        long bishops = bitBoard.getPieces(us, BISHOP);
+        while (bishops != 0L) {
+            int from = Long.numberOfTrailingZeros(bishops);
+            bishops &= bishops - 1;
+            count = addMoves(from, BISHOP, Attacks.bishopAttacks(from, occupied) & targets,
+                    moves, count);
+        }
+
+        long rooks = bitBoard.getPieces(us, ROOK);
+        while (rooks != 0L) {
+            int from = Long.numberOfTrailingZeros(rooks);
+            rooks &= rooks - 1;
+            count = addMoves(from, ROOK, Attacks.rookAttacks(from, occupied) & targets,
+                    moves, count);
+        }
+
+        long queens = bitBoard.getPieces(us, QUEEN);
+        while (queens != 0L) {
+            int from = Long.numberOfTrailingZeros(queens);
+            queens &= queens - 1;
+            count = addMoves(from, QUEEN, Attacks.queenAttacks(from, occupied) & targets,
+                    moves, count);
+        }
+
+        long kings = bitBoard.getPieces(us, KING);
+        if (kings != 0L) {
+            int from = Long.numberOfTrailingZeros(kings);
+            count = addMoves(from, KING, Attacks.kingAttacks(from) & targets, moves, count);
+            count = generateCastling(us, from, moves, count);
+        }
+
+        return count;
+    }
+
+    private int generatePawnMoves(int us, int[] moves, int count) {
+
+        BitBoard bitBoard = position.getBitBoard();
+        long occupied = bitBoard.getAllOccupancy();
+        long enemy = bitBoard.getOccupancy(us ^ 1);
+        long pawns = bitBoard.getPieces(us, PAWN);
+
+        int direction = us == Color.WHITE.ordinal() ? 8 : -8;
+        int startRank = us == Color.WHITE.ordinal() ? 1 : 6;
+
+        // En passant is only possible on the 6th rank for white and on the 3rd one for black
+        int enPassantSquare = position.getEnPassantSquare();
+        long enPassantCell = 0L;
+        if (enPassantSquare >= 0
+                && BitBoard.squareY(enPassantSquare) == (us == Color.WHITE.ordinal() ? 5 : 2)) {
+            long enemyPawnCell = 1L << (enPassantSquare - direction);
+            if ((bitBoard.getPieces(us ^ 1, PAWN) & enemyPawnCell) != 0L) {
+                enPassantCell = 1L << enPassantSquare;
+            }
+        }
+
+        while (pawns != 0L) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+
+            int oneStep = from + direction;
+            if ((occupied & (1L << oneStep)) == 0L) {
+                count = addPawnMoves(from, oneStep, -1, 0, moves, count);
+
+                int twoSteps = oneStep + direction;
+                if (BitBoard.squareY(from) == startRank && (occupied & (1L << twoSteps)) == 0L) {
+                    moves[count++] = Move.encode(from, twoSteps, PAWN, -1, 0,
+                            Move.FLAG_DOUBLE_PUSH);
+                }
+            }
+
+            long attacks = Attacks.pawnAttacks(us, from);
+            long captures = attacks & enemy;
+            while (captures != 0L) {
+                int to = Long.numberOfTrailingZeros(captures);
+                captures &= captures - 1;
+                count = addPawnMoves(from, to, capturedType(to), 0, moves, count);
+            }
+
+            if ((attacks & enPassantCell) != 0L) {
+                moves[count++] = Move.encode(from, enPassantSquare, PAWN, PAWN, 0,
+                        Move.FLAG_EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    private int addPawnMoves(int from, int to, int captured, int flags, int[] moves, int count) {
+
+        int y = BitBoard.squareY(to);
+        if (y == 0 || y == 7) {
+            moves[count++] = Move.encode(from, to, PAWN, captured, QUEEN, flags);
+            moves[count++] = Move.encode(from, to, PAWN, captured, ROOK, flags);
+            moves[count++] = Move.encode(from, to, PAWN, captured, BISHOP, flags);
+            moves[count++] = Move.encode(from, to, PAWN, captured, KNIGHT, flags);
+        } else {
+            moves[count++] = Move.encode(from, to, PAWN, captured, 0, flags);
+        }
+        return count;
+    }
+
+    private int addMoves(int from, int piece, long targets, int[] moves, int count) {
+        while (targets != 0L) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves[count++] = Move.encode(from, to, piece, capturedType(to), 0, 0);
+        }
+        return count;
+    }
+
+    private int generateCastling(int us, int kingSquare, int[] moves, int count) {
+
+        int rights = position.getCastlingRights();
+        int shortRight = us == Color.WHITE.ordinal() ? Board.WHITE_SHORT_CASTLING
+                : Board.BLACK_SHORT_CASTLING;
+        int longRight = us == Color.WHITE.ordinal() ? Board.WHITE_LONG_CASTLING
+                : Board.BLACK_LONG_CASTLING;
+        if ((rights & (shortRight | longRight)) == 0) {
+            return count;
+        }
+
+        // Cells between king and rook should be empty, the long side has one more of them
+        long occupied = position.getBitBoard().getAllOccupancy();
+        boolean shortPathEmpty = (rights & shortRight) != 0
+                && (occupied & (0x3L << (kingSquare + 1))) == 0L;
+        boolean longPathEmpty = (rights & longRight) != 0
+                && (occupied & (0x7L << (kingSquare - 3))) == 0L;
+        if (!shortPathEmpty && !longPathEmpty) {
+            return count;
+        }
+
+        // Cannot castle while king is under check or through the attacked cells
+        long attacked = position.getBitBoard().getAttackMap(us ^ 1);
+        if ((attacked & (1L << kingSquare)) != 0L) {
+            return count;
+        }
+        if (shortPathEmpty && (attacked & (0x3L << (kingSquare + 1))) == 0L) {
+            moves[count++] = Move.encode(kingSquare, kingSquare + 2, KING, -1, 0,
+                    Move.FLAG_CASTLING);
+        }
+        // The rook passes the b-file, which still may be attacked
+        if (longPathEmpty && (attacked & (0x3L << (kingSquare - 2))) == 0L) {
+            moves[count++] = Move.encode(kingSquare, kingSquare - 2, KING, -1, 0,
+                    Move.FLAG_CASTLING);
+        }
+        return count;
+    }
+
+    /**
+     * Checks that the own king is not attacked after the move. Other pieces only need the masks
+     * of the position, the king and en passant, which takes two pawns off one rank at once, are
+     * checked on the occupancy after the move, with the captured piece excluded from attackers.
+     */
+    private boolean isLegal(int move, int us) {
+
+        // Castling squares are already checked during generation
+        if (Move.isCastling(move)) {
+            return true;
+        }
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        long toCell = 1L << to;
+
+        if (Move.piece(move) != KING && !Move.isEnPassant(move)) {
+            updateKingSafety(us);
+            return (toCell & checkMask) != 0L
+                    && ((pinned & (1L << from)) == 0L
+                    || (Attacks.line(safetyKingSquare, from) & toCell) != 0L);
+        }
+
+        BitBoard bitBoard = position.getBitBoard();
+        long capturedCell = toCell;
+        if (Move.isEnPassant(move)) {
+            capturedCell = 1L << (to + (us == Color.WHITE.ordinal() ? -8 : 8));
+        }
+        long occupied = (bitBoard.getAllOccupancy() & ~(1L << from) & ~capturedCell) | toCell;
+
+        int kingSquare = Move.piece(move) == KING ? to
+                : position.getKingSquare(Color.byIndex(us));
+
+        return (bitBoard.attackersOf(kingSquare, us ^ 1, occupied) & ~capturedCell) == 0L;
+    }
+
+    /**
+     * Finds checkers and pinned pieces of the color, unless they are already known for this
+     * position. An enemy slider pins a piece when it is the only piece between it and the king.
+     */
+    private void updateKingSafety(int us) {
+
+        BitBoard bitBoard = position.getBitBoard();
+        long key = position.getZobristKey();
+        long occupied = bitBoard.getAllOccupancy();
+        if (safetyValid && safetyKey == key && safetyOccupancy == occupied && safetyColor == us) {
+            return;
+        }
+
+        int them = us ^ 1;
+        int kingSquare = position.getKingSquare(Color.byIndex(us));
+        long enemy = bitBoard.getOccupancy(them);
+        long queens = bitBoard.getPieces(them, QUEEN);
+
+        checkers = bitBoard.attackersOf(kingSquare, them, occupied);
+        pinned = 0L;
+
+        // Sliders that would attack the king through the own pieces
+        long snipers = (Attacks.rookAttacks(kingSquare, enemy)
+                & (bitBoard.getPieces(them, ROOK) | queens))
+                | (Attacks.bishopAttacks(kingSquare, enemy)
+                & (bitBoard.getPieces(them, BISHOP) | queens));
+        while (snipers != 0L) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Attacks.between(kingSquare, sniper) & occupied;
+            if (blockers != 0L && (blockers & (blockers - 1)) == 0L
+                    && (blockers & bitBoard.getOccupancy(us)) != 0L) {
+                pinned |= blockers;
+            }
+        }
+
+        if (checkers == 0L) {
+            checkMask = ~0L;
+        } else if ((checkers & (checkers - 1)) == 0L) {
+            int checker = Long.numberOfTrailingZeros(checkers);
+            checkMask = checkers | Attacks.between(kingSquare, checker);
+        } else {
+            checkMask = 0L;
+        }
+
+        safetyValid = true;
+        safetyKey = key;
+        safetyOccupancy = occupied;
+        safetyColor = us;
+        safetyKingSquare = kingSquare;
+    }
+
+    private int capturedType(int square) {
+        return position.getBitBoard().getPieceType(square);
+    }
+}
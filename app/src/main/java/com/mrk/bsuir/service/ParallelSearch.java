@@ -0,0 +1,135 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Move;
+
+/**
+ * Search of one position on several threads at once (Lazy SMP). Every worker runs its own Search
+ * on its own copy of the board, the workers share only the transposition table, so a position
+ * searched by one of them is cut off by the others.
+ * Helpers start the iterative deepening one ply deeper every second worker, so they are out of
+ * step with each other and fill the table ahead of the main worker. The main worker runs on the
+ * calling thread and owns the budgets, the helpers are stopped as soon as it returns.
+ */
+public class ParallelSearch {
+
+    private final Board[] boards;
+    private final TranspositionTable table;
+    private final int threads;
+    private Tablebase tablebase;
+    private Bitbase bitbase;
+
+    private volatile Search[] workers;
+    private volatile boolean stopRequested;
+
+    /**
+     * The board is copied for every worker here, on the calling thread, so the search never reads
+     * the board while the caller changes it.
+     */
+    public ParallelSearch(Board board, TranspositionTable table, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count should be at least 1: " + threads);
+        }
+        this.boards = new Board[threads];
+        for (int i = 0; i < threads; i++) {
+            boards[i] = new Board(board);
+        }
+        this.table = table;
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    // Shared by all the workers, like the table
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    // Read only, so one bitbase is shared as well
+    public void setBitbase(Bitbase bitbase) {
+        this.bitbase = bitbase;
+    }
+
+    /**
+     * Same budgets as Search.search. The result is the deepest finished iteration of all the
+     * workers and its node count is the sum of their nodes. Once stopped, even before it starts,
+     * the search stays stopped and returns no move.
+     */
+    public SearchResult search(int maxDepth, long timeLimitMillis, long nodeLimit) {
+
+        if (stopRequested) {
+            return new SearchResult(Move.NONE, 0, 0, 0L, 0L);
+        }
+        long startTime = System.currentTimeMillis();
+        table.newSearch();
+
+        Search[] searches = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new Search(boards[i], table);
+            searches[i].setTablebase(tablebase);
+            searches[i].setBitbase(bitbase);
+        }
+        workers = searches;
+
+        SearchResult[] results = new SearchResult[threads];
+        Thread[] helpers = new Thread[threads - 1];
+        for (int i = 1; i < threads; i++) {
+            int worker = i;
+            helpers[i - 1] = new Thread(() -> results[worker] = searches[worker].search(
+                    1 + worker % 2, maxDepth, timeLimitMillis, 0L), "search-helper-" + i);
+            helpers[i - 1].start();
+        }
+        // A stop requested while the workers were created would be missed by them otherwise
+        if (stopRequested) {
+            stopWorkers(searches);
+        }
+
+        results[0] = searches[0].search(1, maxDepth, timeLimitMillis, nodeLimit);
+        stopWorkers(searches);
+
+        for (Thread helper : helpers) {
+            try {
+                helper.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workers = null;
+
+        SearchResult best = results[0];
+        long nodes = 0L;
+        for (SearchResult result : results) {
+            if (result == null) {
+                continue;
+            }
+            nodes += result.getNodes();
+            if (result.getDepth() > best.getDepth()) {
+                best = result;
+            }
+        }
+        return new SearchResult(best.getBestMove(), best.getScore(), best.getDepth(), nodes,
+                System.currentTimeMillis() - startTime);
+    }
+
+    // Can be called from another thread, like Search.stop
+    public void stop() {
+        stopRequested = true;
+        Search[] searches = workers;
+        if (searches != null) {
+            stopWorkers(searches);
+        }
+    }
+
+    private static void stopWorkers(Search[] searches) {
+        for (Search search : searches) {
+            search.stop();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Move;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft counts the leaf nodes of the legal move tree of the side to move up to the given depth.
+ * The numbers are well known for many positions, so it is used both as a correctness check of
+ * the move generation and as a benchmark of it. It depends on nothing from Android and can be
+ * started on a plain JVM through the main method.
+ * The tree is walked with makeMove and unmakeMove on a single board. Only the parallel mode copies
+ * the board, once for every root move, so its tasks share no state.
+ */
+public class Perft {
+
+    private final Board board;
+
+    public Perft(Board board) {
+        this.board = board;
+    }
+
+    public long perft(int depth) {
+        return perft(board, new MoveGenerator(board), depth,
+                new int[depth + 1][MoveGenerator.MAX_MOVES]);
+    }
+
+    /**
+     * Returns the node count of every root move separately, which is the usual way to find the
+     * move where the generator goes wrong.
+     */
+    public Map<String, Long> divide(int depth) {
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+        MoveGenerator moveGenerator = new MoveGenerator(board);
+        int count = moveGenerator.generateLegalMoves(rootMoves);
+        int[][] buffers = new int[Math.max(depth, 1)][MoveGenerator.MAX_MOVES];
+
+        for (int i = 0; i < count; i++) {
+            board.makeMove(rootMoves[i]);
+            result.put(Move.toNotation(rootMoves[i]),
+                    depth <= 1 ? 1L : perft(board, moveGenerator, depth - 1, buffers));
+            board.unmakeMove();
+        }
+        return result;
+    }
+
+    public long parallelPerft(int depth, ForkJoinPool pool) {
+        return pool.invoke(new PerftTask(board, depth, true));
+    }
+
+    private static long perft(Board board, MoveGenerator moveGenerator, int depth,
+                              int[][] buffers) {
+
+        if (depth == 0) {
+            return 1L;
+        }
+
+        int[] moves = buffers[depth];
+        int count = moveGenerator.generateLegalMoves(moves);
+
+        // Leaves are not visited, the amount of legal moves is already their count
+        if (depth == 1) {
+            return count;
+        }
+
+        long nodes = 0L;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(moves[i]);
+            nodes += perft(board, moveGenerator, depth - 1, buffers);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+
+    private static class PerftTask extends RecursiveTask<Long> {
+
+        private final Board board;
+        private final int depth;
+        private final boolean root;
+
+        PerftTask(Board board, int depth, boolean root) {
+            this.board = board;
+            this.depth = depth;
+            this.root = root;
+        }
+
+        @Override
+        protected Long compute() {
+
+            if (!root || depth <= 1) {
+                return perft(board, new MoveGenerator(board), depth,
+                        new int[depth + 1][MoveGenerator.MAX_MOVES]);
+            }
+
+            // Every root move becomes a separate task with its own copy of the board
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int count = new MoveGenerator(board).generateLegalMoves(moves);
+            PerftTask[] tasks = new PerftTask[count];
+
+            for (int i = 0; i < count; i++) {
+                Board child = new Board(board);
+                child.makeMove(moves[i]);
+                tasks[i] = new PerftTask(child, depth - 1, false);
+                tasks[i].fork();
+            }
+
+            long nodes = 0L;
+            for (PerftTask task : tasks) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * Usage: Perft depth [divide | parallel [threads]] [FEN]
+     * Counts the nodes from the position, the start one by default, and prints the speed in nodes
+     * per second. The FEN is everything after the mode, so it may be passed without quotes.
+     */
+    public static void main(String[] args) {
+
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        String mode = args.length > 1 ? args[1] : "";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int fenStart = mode.equals("divide") ? 2 : 1;
+        if (mode.equals("parallel")) {
+            fenStart = 2;
+            if (args.length > 2 && args[2].matches("\\d+")) {
+                threads = Integer.parseInt(args[2]);
+                fenStart = 3;
+            }
+        }
+
+        Board board = new Board();
+        if (args.length > fenStart) {
+            board.setFen(String.join(" ", Arrays.copyOfRange(args, fenStart, args.length)));
+        }
+        Perft perft = new Perft(board);
+
+        long startTime = System.nanoTime();
+        long nodes;
+
+        if (mode.equals("divide")) {
+            nodes = 0L;
+            for (Map.Entry<String, Long> entry : perft.divide(depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+        } else if (mode.equals("parallel")) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            nodes = perft.parallelPerft(depth, pool);
+            pool.shutdown();
+        } else {
+            nodes = perft.perft(depth);
+        }
+
+        long elapsedNanos = Math.max(System.nanoTime() - startTime, 1L);
+        System.out.println("Depth " + depth + ": " + nodes + " nodes in "
+                + elapsedNanos / 1_000_000 + " ms, "
+                + nodes * 1_000_000_000L / elapsedNanos + " nodes per second");
+    }
+}
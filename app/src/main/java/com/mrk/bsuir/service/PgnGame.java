@@ -0,0 +1,48 @@
+package com.mrk.bsuir.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One game of a PGN file: the tag pairs in their order, the moves of the main line in SAN and
+ * the result (1-0, 0-1, 1/2-1/2 or * for an unknown one). Comments, annotations and variations
+ * are not kept.
+ */
+public class PgnGame {
+
+    public static final String UNKNOWN_RESULT = "*";
+
+    private final Map<String, String> tags = new LinkedHashMap<>();
+    private final List<String> moves = new ArrayList<>();
+    private String result = UNKNOWN_RESULT;
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    public void setTag(String name, String value) {
+        tags.put(name, value);
+    }
+
+    public List<String> getMoves() {
+        return moves;
+    }
+
+    public void addMove(String san) {
+        moves.add(san);
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public void setResult(String result) {
+        this.result = result;
+    }
+}
@@ -0,0 +1,216 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.exceptions.PgnException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streaming reader of PGN files. The file is read through one fixed buffer and games are
+ * returned one by one, so a file of any size is read in the memory of a single game.
+ * Tag values are decoded as UTF-8, the movetext is plain ASCII. Comments, NAGs, variations and
+ * move numbers are skipped, the moves are returned as written, without checking them: replaying
+ * them is the work of San, which can then be done on several threads (see PgnReplay).
+ */
+public class PgnReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final StringBuilder token = new StringBuilder(16);
+    private byte[] tagBytes = new byte[64];
+    private int pushedBack = -1;
+    private long line = 1;
+
+    public PgnReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer.flip();
+    }
+
+    /**
+     * Reads the next game or returns null at the end of the file. A game ends with its result or
+     * with the tags of the next game, when the result is missing.
+     */
+    public PgnGame next() throws IOException {
+
+        PgnGame game = null;
+        boolean inMovetext = false;
+
+        int c;
+        while ((c = read()) >= 0) {
+            if (isSpace(c)) {
+                continue;
+            }
+            if (game == null) {
+                game = new PgnGame();
+            }
+
+            if (c == '[') {
+                if (inMovetext) {
+                    pushedBack = c;
+                    return game;
+                }
+                readTag(game);
+            } else if (c == '{') {
+                skipUntil('}');
+            } else if (c == ';' || c == '%') {
+                skipUntil('\n');
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == '$') {
+                readToken(c);
+                inMovetext = true;
+            } else {
+                inMovetext = true;
+                readToken(c);
+                if (isResult(token)) {
+                    game.setResult(token.toString());
+                    return game;
+                }
+                String san = stripMoveNumber(token);
+                if (san != null) {
+                    game.addMove(san);
+                }
+            }
+        }
+        return game;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readTag(PgnGame game) throws IOException {
+
+        int c = skipSpaces(read());
+        token.setLength(0);
+        while (c >= 0 && !isSpace(c) && c != '"' && c != ']') {
+            token.append((char) c);
+            c = read();
+        }
+        String name = token.toString();
+
+        c = skipSpaces(c);
+        if (c != '"') {
+            throw new PgnException("Tag " + name + " has no value at line " + line);
+        }
+
+        // Values are collected as bytes first, so letters of any language survive
+        int length = 0;
+        while ((c = read()) >= 0 && c != '"') {
+            if (c == '\\') {
+                c = read();
+            }
+            if (length == tagBytes.length) {
+                tagBytes = Arrays.copyOf(tagBytes, length * 2);
+            }
+            tagBytes[length++] = (byte) c;
+        }
+        game.setTag(name, new String(tagBytes, 0, length, StandardCharsets.UTF_8));
+        skipUntil(']');
+    }
+
+    private void readToken(int first) throws IOException {
+
+        token.setLength(0);
+        int c = first;
+        while (c >= 0 && !isSpace(c) && "{}()[];".indexOf(c) < 0) {
+            token.append((char) c);
+            c = read();
+        }
+        if (c >= 0 && !isSpace(c)) {
+            pushedBack = c;
+        }
+    }
+
+    private void skipVariation() throws IOException {
+
+        int depth = 1;
+        int c;
+        while (depth > 0 && (c = read()) >= 0) {
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '{') {
+                skipUntil('}');
+            } else if (c == ';') {
+                skipUntil('\n');
+            }
+        }
+    }
+
+    private void skipUntil(int end) throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c >= 0 && c != end);
+    }
+
+    private int skipSpaces(int c) throws IOException {
+        while (c >= 0 && isSpace(c)) {
+            c = read();
+        }
+        return c;
+    }
+
+    private int read() throws IOException {
+
+        if (pushedBack >= 0) {
+            int c = pushedBack;
+            pushedBack = -1;
+            return c;
+        }
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            buffer.flip();
+            if (read < 0) {
+                return -1;
+            }
+        }
+        int c = buffer.get() & 0xFF;
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    // Bytes of other encodings, like a byte order mark, are only met between the moves
+    private static boolean isSpace(int c) {
+        return c <= ' ' || c >= 0x7F;
+    }
+
+    private static boolean isResult(CharSequence token) {
+        return "1-0".contentEquals(token) || "0-1".contentEquals(token)
+                || "1/2-1/2".contentEquals(token) || PgnGame.UNKNOWN_RESULT.contentEquals(token);
+    }
+
+    // Move numbers like 12. and 12... are dropped, also when the move follows without a space
+    private static String stripMoveNumber(CharSequence token) {
+
+        int start = 0;
+        while (start < token.length() && Character.isDigit(token.charAt(start))) {
+            start++;
+        }
+        if (start == 0) {
+            return token.toString();
+        }
+        if (start < token.length() && token.charAt(start) != '.') {
+            return token.toString();
+        }
+        while (start < token.length() && token.charAt(start) == '.') {
+            start++;
+        }
+        return start < token.length() ? token.subSequence(start, token.length()).toString() : null;
+    }
+}
@@ -0,0 +1,150 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.exceptions.FenException;
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Move;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks every game of a PGN file by replaying its moves. One thread reads the games and hands
+ * them to the replaying threads through a bounded queue, so the file is read in constant memory
+ * however large it is and the replay is spread over the cores.
+ * Every replaying thread has its own board and takes the moves back after each game, so no
+ * board is created per game. Games with a FEN tag are set up from it, and the start position is
+ * set up again only for the first game after them.
+ * It can be started on a plain JVM: ./gradlew :benchmark:pgn --args="games.pgn 4"
+ */
+public class PgnReplay {
+
+    // Marks the end of the file for the replaying threads
+    private static final PgnGame END = new PgnGame();
+
+    private final AtomicLong games = new AtomicLong();
+    private final AtomicLong invalidGames = new AtomicLong();
+    private final AtomicLong moves = new AtomicLong();
+
+    public long getGames() {
+        return games.get();
+    }
+
+    public long getInvalidGames() {
+        return invalidGames.get();
+    }
+
+    public long getMoves() {
+        return moves.get();
+    }
+
+    /**
+     * Reads all games and replays them on the given amount of threads. Games with a move that is
+     * not legal in their position, with a wrong FEN or that fail in any other way are counted as
+     * invalid.
+     */
+    public void replay(PgnReader reader, int threads) throws IOException, InterruptedException {
+
+        BlockingQueue<PgnGame> queue = new ArrayBlockingQueue<>(threads * 64);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> replayGames(queue), "pgn-replay-" + i);
+            workers[i].start();
+        }
+
+        try {
+            PgnGame game;
+            while ((game = reader.next()) != null) {
+                queue.put(game);
+            }
+        } finally {
+            for (int i = 0; i < threads; i++) {
+                queue.put(END);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+    }
+
+    private void replayGames(BlockingQueue<PgnGame> queue) {
+
+        Board board = new Board();
+        San san = new San(board);
+        boolean startPosition = true;
+        try {
+            PgnGame game;
+            while ((game = queue.take()) != END) {
+                try {
+                    startPosition = replayGame(board, san, game, startPosition);
+                } catch (RuntimeException e) {
+                    // A FEN that passes setFen may still be no position, like one where the
+                    // king can be taken. The worker keeps going, or the queue would fill up
+                    // and the reader would wait forever, and the next game sets the board up
+                    invalidGames.incrementAndGet();
+                    board.setFen(Board.START_FEN);
+                    startPosition = true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Returns whether the board is left in the start position
+    private boolean replayGame(Board board, San san, PgnGame game, boolean startPosition) {
+
+        games.incrementAndGet();
+        String fen = game.getTag("FEN");
+        try {
+            if (fen != null) {
+                board.setFen(fen);
+            } else if (!startPosition) {
+                board.setFen(Board.START_FEN);
+            }
+        } catch (FenException e) {
+            invalidGames.incrementAndGet();
+            return false;
+        }
+
+        int played = 0;
+        for (String notation : game.getMoves()) {
+            int move = san.parse(notation);
+            if (move == Move.NONE) {
+                invalidGames.incrementAndGet();
+                break;
+            }
+            board.makeMove(move);
+            played++;
+        }
+        moves.addAndGet(played);
+
+        while (played-- > 0) {
+            board.unmakeMove();
+        }
+        return fen == null;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+
+        PgnReplay replay = new PgnReplay();
+        long start = System.nanoTime();
+        try (PgnReader reader = new PgnReader(
+                FileChannel.open(Paths.get(args[0]), StandardOpenOption.READ))) {
+            replay.replay(reader, threads);
+        }
+        long millis = Math.max((System.nanoTime() - start) / 1_000_000L, 1L);
+
+        System.out.println("Games: " + replay.getGames() + ", invalid: " + replay.getInvalidGames()
+                + ", moves: " + replay.getMoves());
+        System.out.println("Threads: " + threads + ", time: " + millis + " ms, games per second: "
+                + replay.getGames() * 1000L / millis);
+    }
+}
@@ -0,0 +1,100 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Board;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writer of PGN files. Every game is written as its tag pairs, an empty line and the movetext
+ * with move numbers, broken into lines of at most 80 characters as the standard asks.
+ * A game of the app is turned into SAN by replaying its record from its start position, which
+ * is written in the FEN tag when it is not the standard one.
+ */
+public class PgnWriter implements Closeable {
+
+    private static final int LINE_LENGTH = 80;
+
+    private final Writer out;
+
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Replays the moves of the record on a new board, writing every one of them in SAN, so the
+     * game can be exchanged with any other chess program. A record that starts from another
+     * position gets the SetUp and FEN tags.
+     */
+    public static PgnGame fromRecord(GameLogService record, Map<String, String> tags,
+                                     String result) {
+
+        PgnGame game = new PgnGame();
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            game.setTag(tag.getKey(), tag.getValue());
+        }
+        game.setTag("Result", result);
+        game.setResult(result);
+
+        Board board = new Board();
+        String startFen = record.getStartFen();
+        board.setFen(startFen);
+        if (!board.getFen().equals(Board.START_FEN)) {
+            game.setTag("SetUp", "1");
+            game.setTag("FEN", board.getFen());
+        }
+        San san = new San(board);
+        for (int i = 0; i < record.getCurrentMove(); i++) {
+            int move = record.getMove(i);
+            game.addMove(san.toSan(move));
+            board.makeMove(move);
+        }
+        return game;
+    }
+
+    public void write(PgnGame game) throws IOException {
+
+        for (Map.Entry<String, String> tag : game.getTags().entrySet()) {
+            out.write('[');
+            out.write(tag.getKey());
+            out.write(" \"");
+            out.write(tag.getValue().replace("\\", "\\\\").replace("\"", "\\\""));
+            out.write("\"]\n");
+        }
+        out.write('\n');
+
+        StringBuilder line = new StringBuilder(LINE_LENGTH);
+        for (int i = 0; i < game.getMoves().size(); i++) {
+            if (i % 2 == 0) {
+                appendWord(line, (i / 2 + 1) + ".");
+            }
+            appendWord(line, game.getMoves().get(i));
+        }
+        appendWord(line, game.getResult());
+        out.write(line.toString());
+        out.write("\n\n");
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void appendWord(StringBuilder line, String word) throws IOException {
+        if (line.length() > 0 && line.length() + 1 + word.length() > LINE_LENGTH) {
+            out.write(line.toString());
+            out.write('\n');
+            line.setLength(0);
+        }
+        if (line.length() > 0) {
+            line.append(' ');
+        }
+        line.append(word);
+    }
+}
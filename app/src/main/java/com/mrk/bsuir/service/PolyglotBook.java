@@ -0,0 +1,176 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.exceptions.BookException;
+import com.mrk.bsuir.model.BitBoard;
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Move;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Opening book in the Polyglot .bin format: entries of 16 big-endian bytes, the key, the move,
+ * the weight and the learn data, sorted by the key. The file is memory-mapped, so it is never
+ * read onto the heap, and the entries of a position are found by binary search, which touches
+ * only a few pages of a book of any size.
+ * Reading is done by absolute gets only, so one book can be shared by any amount of threads.
+ */
+public class PolyglotBook implements Closeable {
+
+    public static final int ENTRY_SIZE = 16;
+
+    // Mappings are limited to 2 GB, larger books are mapped in parts of 1 GB
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_ENTRIES = 1L << SEGMENT_SHIFT;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long entryCount;
+
+    public PolyglotBook(Path file) throws IOException {
+
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        long size = channel.size();
+        if (size % ENTRY_SIZE != 0) {
+            channel.close();
+            throw new BookException("Size of the book is not a multiple of " + ENTRY_SIZE);
+        }
+
+        entryCount = size / ENTRY_SIZE;
+        int segmentCount = (int) ((entryCount + SEGMENT_ENTRIES - 1) >>> SEGMENT_SHIFT);
+        segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segments.length; i++) {
+            long start = i * SEGMENT_ENTRIES * ENTRY_SIZE;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(SEGMENT_ENTRIES * ENTRY_SIZE, size - start));
+        }
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Writes the book moves of the position and their weights, returning their count. The moves
+     * are legal moves of the board in the encoding of the Move class, moves with zero weight and
+     * moves that are not legal here, which only a broken book has, are left out.
+     */
+    public int findMoves(Board board, int[] moves, int[] weights) {
+
+        long key = PolyglotKey.key(board);
+        int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+        int legalCount = new MoveGenerator(board).generateLegalMoves(legalMoves);
+
+        int count = 0;
+        for (long index = firstEntry(key); index < entryCount && keyAt(index) == key; index++) {
+            int weight = weightAt(index);
+            int move = weight == 0 ? Move.NONE
+                    : findLegalMove(moveAt(index), legalMoves, legalCount);
+            if (move != Move.NONE && count < moves.length) {
+                moves[count] = move;
+                weights[count] = weight;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Picks one of the book moves with the probability of its weight, or returns Move.NONE when
+     * the position is not in the book.
+     */
+    public int pickMove(Board board, Random random) {
+
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int[] weights = new int[MoveGenerator.MAX_MOVES];
+        int count = findMoves(board, moves, weights);
+
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            total += weights[i];
+        }
+        if (total == 0) {
+            return Move.NONE;
+        }
+        int chosen = random.nextInt(total);
+        for (int i = 0; i < count; i++) {
+            chosen -= weights[i];
+            if (chosen < 0) {
+                return moves[i];
+            }
+        }
+        return Move.NONE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Index of the first entry with the key or of the first larger one, keys are unsigned
+    private long firstEntry(long key) {
+        long low = 0L;
+        long high = entryCount;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(keyAt(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(long index) {
+        return segment(index).getLong(offset(index));
+    }
+
+    private int moveAt(long index) {
+        return segment(index).getShort(offset(index) + 8) & 0xFFFF;
+    }
+
+    private int weightAt(long index) {
+        return segment(index).getShort(offset(index) + 10) & 0xFFFF;
+    }
+
+    private MappedByteBuffer segment(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)];
+    }
+
+    private static int offset(long index) {
+        return (int) (index & (SEGMENT_ENTRIES - 1)) * ENTRY_SIZE;
+    }
+
+    /**
+     * Polyglot moves hold the target file and rank, the start file and rank, three bits each,
+     * and the promotion from the knight as 1 to the queen as 4, like PieceType. Castling is
+     * written as the king taking its own rook.
+     */
+    private static int findLegalMove(int bookMove, int[] legalMoves, int legalCount) {
+
+        int to = BitBoard.square(bookMove & 7, (bookMove >>> 3) & 7);
+        int from = BitBoard.square((bookMove >>> 6) & 7, (bookMove >>> 9) & 7);
+        int promotion = (bookMove >>> 12) & 7;
+
+        for (int i = 0; i < legalCount; i++) {
+            int move = legalMoves[i];
+            if (Move.from(move) != from || Move.promotion(move) != promotion) {
+                continue;
+            }
+            int target = Move.to(move);
+            if (Move.isCastling(move)) {
+                target = target > from ? from + 3 : from - 4;
+            }
+            if (target == to) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+}
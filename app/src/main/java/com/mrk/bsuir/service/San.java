@@ -0,0 +1,208 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.BitBoard;
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Color;
+import com.mrk.bsuir.model.Move;
+import com.mrk.bsuir.model.PieceType;
+
+/**
+ * Standard algebraic notation (SAN) of the moves in the position of one board, like Nbd7, exd6,
+ * e8=Q+ or O-O-O#. Both directions go through the legal moves of MoveGenerator, the same ones
+ * MoveService allows, so a parsed move is always legal and a written one is never ambiguous.
+ * Like the generator, an instance keeps buffers, so every thread uses its own one.
+ */
+public class San {
+
+    private static final String PIECE_LETTERS = "PNBRQK";
+
+    private final Board board;
+    private final MoveGenerator moveGenerator;
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    public San(Board board) {
+        this.board = board;
+        this.moveGenerator = new MoveGenerator(board);
+    }
+
+    /**
+     * Writes the SAN of a legal move of the side to move. The file, the rank or both of the start
+     * square are added only when another piece of the same type can reach the same square.
+     * The move is made and taken back on the board to find check and checkmate.
+     */
+    public String toSan(int move) {
+
+        StringBuilder builder = new StringBuilder(8);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = Move.piece(move);
+
+        if (Move.isCastling(move)) {
+            builder.append(to > from ? "O-O" : "O-O-O");
+        } else if (piece == PieceType.PAWN.ordinal()) {
+            if (Move.isCapture(move)) {
+                builder.append((char) ('a' + BitBoard.squareX(from))).append('x');
+            }
+            appendSquare(builder, to);
+            if (Move.isPromotion(move)) {
+                builder.append('=').append(PIECE_LETTERS.charAt(Move.promotion(move)));
+            }
+        } else {
+            builder.append(PIECE_LETTERS.charAt(piece));
+            appendDisambiguation(builder, move);
+            if (Move.isCapture(move)) {
+                builder.append('x');
+            }
+            appendSquare(builder, to);
+        }
+
+        board.makeMove(move);
+        Color sideToMove = board.getSideToMove();
+        if (moveGenerator.isInCheck(sideToMove)) {
+            builder.append(moveGenerator.hasLegalMove(sideToMove) ? '+' : '#');
+        }
+        board.unmakeMove();
+        return builder.toString();
+    }
+
+    /**
+     * Finds the legal move written in SAN or returns Move.NONE if there is no such move or the
+     * notation fits more than one. Check marks and annotations like ! and ? are ignored, castling
+     * can be written with zeros as well.
+     */
+    public int parse(CharSequence san) {
+
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        if (end < 2) {
+            return Move.NONE;
+        }
+
+        if (isCastling(san, end)) {
+            return findCastling(end == 5);
+        }
+
+        int start = 0;
+        int piece = PieceType.PAWN.ordinal();
+        int index = PIECE_LETTERS.indexOf(san.charAt(0));
+        if (index > 0) {
+            piece = index;
+            start = 1;
+        }
+
+        int promotion = 0;
+        if (PIECE_LETTERS.indexOf(san.charAt(end - 1)) > 0) {
+            promotion = PIECE_LETTERS.indexOf(san.charAt(end - 1));
+            end--;
+            if (end > 0 && san.charAt(end - 1) == '=') {
+                end--;
+            }
+        }
+        if (end - start < 2 || !isFile(san.charAt(end - 2)) || !isRank(san.charAt(end - 1))) {
+            return Move.NONE;
+        }
+        int to = BitBoard.square(san.charAt(end - 2) - 'a', san.charAt(end - 1) - '1');
+        end -= 2;
+
+        // What is left between the piece and the target: file, rank and the capture mark
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = start; i < end; i++) {
+            char c = san.charAt(i);
+            if (isFile(c)) {
+                fromFile = c - 'a';
+            } else if (isRank(c)) {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != ':') {
+                return Move.NONE;
+            }
+        }
+
+        int found = Move.NONE;
+        int count = moveGenerator.generateLegalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = Move.from(move);
+            if (Move.piece(move) != piece || Move.to(move) != to || Move.isCastling(move)
+                    || Move.promotion(move) != promotion
+                    || (fromFile >= 0 && BitBoard.squareX(from) != fromFile)
+                    || (fromRank >= 0 && BitBoard.squareY(from) != fromRank)) {
+                continue;
+            }
+            if (found != Move.NONE) {
+                return Move.NONE;
+            }
+            found = move;
+        }
+        return found;
+    }
+
+    private void appendDisambiguation(StringBuilder builder, int move) {
+
+        int from = Move.from(move);
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+
+        int count = moveGenerator.generateLegalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            int other = moves[i];
+            int otherFrom = Move.from(other);
+            if (otherFrom == from || Move.to(other) != Move.to(move)
+                    || Move.piece(other) != Move.piece(move)) {
+                continue;
+            }
+            ambiguous = true;
+            sameFile |= BitBoard.squareX(otherFrom) == BitBoard.squareX(from);
+            sameRank |= BitBoard.squareY(otherFrom) == BitBoard.squareY(from);
+        }
+
+        // The file is enough unless another piece stands on it, then the rank, then both
+        if (ambiguous && (!sameFile || sameRank)) {
+            builder.append((char) ('a' + BitBoard.squareX(from)));
+        }
+        if (ambiguous && sameFile) {
+            builder.append((char) ('1' + BitBoard.squareY(from)));
+        }
+    }
+
+    private int findCastling(boolean longCastling) {
+
+        int count = moveGenerator.generateLegalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (Move.isCastling(move) && (Move.to(move) < Move.from(move)) == longCastling) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    private static boolean isCastling(CharSequence san, int end) {
+        if (end != 3 && end != 5) {
+            return false;
+        }
+        for (int i = 0; i < end; i++) {
+            char c = san.charAt(i);
+            if (i % 2 == 1 ? c != '-' : c != 'O' && c != '0') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isFile(char c) {
+        return c >= 'a' && c <= 'h';
+    }
+
+    private static boolean isRank(char c) {
+        return c >= '1' && c <= '8';
+    }
+
+    private static void appendSquare(StringBuilder builder, int square) {
+        builder.append((char) ('a' + BitBoard.squareX(square)))
+                .append((char) ('1' + BitBoard.squareY(square)));
+    }
+}
@@ -0,0 +1,462 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Evaluation;
+import com.mrk.bsuir.model.Move;
+
+import java.util.Arrays;
+
+/**
+ * Computer opponent. Negamax alpha-beta search over the legal moves of MoveGenerator, repeated
+ * with iterative deepening until the time or node budget is spent, so a move is always ready in
+ * time: the answer is the best move of the deepest finished iteration.
+ * The search makes and unmakes moves on its board, so it should get a copy of the game board
+ * when it runs beside the UI.
+ * Results are kept in the transposition table, which gives the best move of the previous
+ * iteration to try first and cuts off positions reached again by another move order.
+ * At the end of the depth the captures and promotions are searched further (quiescence), so the
+ * position is never judged in the middle of a trade.
+ * The cutoff comes sooner when the best move is tried first, so moves are tried in this order:
+ * the move of the table, captures by the most valuable victim and then the least valuable
+ * attacker (MVV-LVA), the two last quiet moves that cut off at the same ply (killers) and the
+ * other quiet moves by how often they cut off before (history). Scores of the moves, killers
+ * and history are kept in arrays created once with the search.
+ */
+public class Search {
+
+    public static final int MAX_PLY = 64;
+    public static final int MATE_SCORE = 30000;
+
+    // Scores above this one mean a forced mate
+    public static final int MATE_BOUND = MATE_SCORE - MAX_PLY;
+
+    private static final int INFINITY = MATE_SCORE + 1;
+
+    // Won positions of the tablebase score below mates, less for the longer way to zeroing
+    public static final int TABLEBASE_WIN_SCORE = MATE_BOUND - MAX_PLY;
+
+    // Scores above this one are tablebase wins or mates, both counted from the root
+    private static final int TABLEBASE_BOUND = TABLEBASE_WIN_SCORE - TablebaseFile.MAX_DTZ
+            - MAX_PLY;
+
+    // Wins of the bitbase score above any evaluation, which is added to find the way to the mate
+    public static final int BITBASE_WIN_SCORE = 10000;
+
+    // Time is read only once per this amount of nodes, the mask is 2^n - 1
+    private static final long TIME_CHECK_MASK = 1023L;
+
+    // Default table size, small enough for the phones with little memory
+    public static final int DEFAULT_TABLE_MB = 8;
+
+    // Order scores of the kinds of moves, every kind is tried before the next one
+    private static final int TABLE_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 29;
+    private static final int KILLER_SCORE = 1 << 28;
+
+    // History is halved when any of its scores grows above this one, so it stays below killers
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    private final Board board;
+    private final MoveGenerator moveGenerator;
+    private final TranspositionTable table;
+    private Tablebase tablebase;
+    private Bitbase bitbase;
+    private final int[][] moveBuffers = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    private final int[][] moveScores = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+
+    // Two killer moves of every ply and history of every color, from and to square
+    private final int[] killers = new int[(MAX_PLY + 1) * 2];
+    private final int[] history = new int[2 * 64 * 64];
+
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean stopped;
+    private volatile boolean stopRequested;
+
+    public Search(Board board) {
+        this(board, new TranspositionTable(DEFAULT_TABLE_MB));
+    }
+
+    // The table can outlive the search, so the next move of the game starts with its results
+    public Search(Board board, TranspositionTable table) {
+        this.board = board;
+        this.moveGenerator = new MoveGenerator(board);
+        this.table = table;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    // Positions with few enough pieces are then taken from the tablebase instead of searched
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Draws of the bitbase end the search of their branch. Its wins have no distance to the
+     * mate, so they are scored only at the horizon and the mate is still searched for.
+     */
+    public void setBitbase(Bitbase bitbase) {
+        this.bitbase = bitbase;
+    }
+
+    /**
+     * Searches the position of the board for the side to move. The search stops at maxDepth or
+     * when either of the budgets is spent, a budget of 0 or less means no limit.
+     */
+    public SearchResult search(int maxDepth, long timeLimitMillis, long nodeLimit) {
+        stopRequested = false;
+        table.newSearch();
+        return search(1, maxDepth, timeLimitMillis, nodeLimit);
+    }
+
+    /**
+     * Iterative deepening from firstDepth. Helper threads of ParallelSearch start at different
+     * depths over the same table, the table generation is then moved on only once for all of them.
+     */
+    SearchResult search(int firstDepth, int maxDepth, long timeLimitMillis, long nodeLimit) {
+
+        long startTime = System.currentTimeMillis();
+        this.deadline = timeLimitMillis > 0 ? startTime + timeLimitMillis : Long.MAX_VALUE;
+        this.nodeLimit = nodeLimit > 0 ? nodeLimit : Long.MAX_VALUE;
+        this.nodes = 0L;
+        this.stopped = false;
+        Arrays.fill(killers, Move.NONE);
+        ageHistory();
+
+        int[] rootMoves = moveBuffers[0];
+        int count = moveGenerator.generateLegalMoves(rootMoves);
+        if (count == 0) {
+            int score = moveGenerator.isInCheck(board.getSideToMove()) ? -MATE_SCORE : 0;
+            return new SearchResult(Move.NONE, score, 0, 0L, 0L);
+        }
+
+        // Root moves are sorted once, later iterations only bring their best move to the front
+        long rootEntry = table.probe(board.getZobristKey());
+        scoreMoves(rootMoves, moveScores[0], count, 0,
+                rootEntry != 0L ? TranspositionTable.entryMove(rootEntry) : Move.NONE);
+        for (int i = 0; i < count; i++) {
+            pickMove(rootMoves, moveScores[0], i, count);
+        }
+
+        int bestMove = rootMoves[0];
+        int bestScore = 0;
+        int completedDepth = 0;
+
+        for (int depth = firstDepth; depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+
+            int iterationMove = Move.NONE;
+            int alpha = -INFINITY;
+
+            for (int i = 0; i < count; i++) {
+                board.makeMove(rootMoves[i]);
+                int score = -negamax(depth - 1, 1, -INFINITY, -alpha);
+                board.unmakeMove();
+
+                if (stopped) {
+                    break;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    iterationMove = rootMoves[i];
+                }
+            }
+
+            // An unfinished iteration has not seen every move, so its choice is not trusted
+            if (stopped) {
+                break;
+            }
+            bestMove = iterationMove;
+            bestScore = alpha;
+            completedDepth = depth;
+            moveToFront(rootMoves, count, bestMove);
+            table.store(board.getZobristKey(), bestMove, scoreToTable(bestScore, 0), depth,
+                    TranspositionTable.BOUND_EXACT);
+
+            if (Math.abs(bestScore) >= MATE_BOUND) {
+                break;
+            }
+        }
+
+        return new SearchResult(bestMove, bestScore, completedDepth, nodes,
+                System.currentTimeMillis() - startTime);
+    }
+
+    // Can be called from another thread, the search returns its last finished result soon after
+    public void stop() {
+        stopRequested = true;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+
+        nodes++;
+        if (nodes >= nodeLimit || ((nodes & TIME_CHECK_MASK) == 0L && isTimeUp())) {
+            stopped = true;
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (isDrawByRule()) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return Evaluation.evaluate(board);
+        }
+        if (bitbase != null) {
+            int result = bitbase.probe(board);
+            if (result == Bitbase.DRAW) {
+                return 0;
+            }
+            if (result != Bitbase.NONE && depth == 0) {
+                return result * BITBASE_WIN_SCORE + Evaluation.evaluate(board);
+            }
+        }
+        if (depth == 0) {
+            return quiescence(ply, alpha, beta);
+        }
+
+        long key = board.getZobristKey();
+        long entry = table.probe(key);
+        int tableMove = Move.NONE;
+        if (entry != 0L) {
+            tableMove = TranspositionTable.entryMove(entry);
+            if (TranspositionTable.entryDepth(entry) >= depth) {
+                int score = scoreFromTable(TranspositionTable.entryScore(entry), ply);
+                int bound = TranspositionTable.entryBound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        if (tablebase != null) {
+            int probe = tablebase.probe(board);
+            if (probe != Tablebase.NONE) {
+                int wdl = Tablebase.wdl(probe);
+                return wdl == 0 ? 0 : wdl * (TABLEBASE_WIN_SCORE - Tablebase.dtz(probe) - ply);
+            }
+        }
+
+        int[] moves = moveBuffers[ply];
+        int count = moveGenerator.generateLegalMoves(moves);
+        if (count == 0) {
+            // Nearer mates score higher, so the shortest one is chosen
+            return moveGenerator.isInCheck(board.getSideToMove()) ? -MATE_SCORE + ply : 0;
+        }
+        // The move of the table is only a hint, it is played only if the generator has it too
+        int[] scores = moveScores[ply];
+        scoreMoves(moves, scores, count, ply, tableMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            pickMove(moves, scores, i, count);
+            board.makeMove(moves[i]);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            board.unmakeMove();
+
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = moves[i];
+                    if (alpha >= beta) {
+                        if (!Move.isCapture(bestMove) && !Move.isPromotion(bestMove)) {
+                            rememberQuietCutoff(bestMove, ply, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.BOUND_LOWER
+                : bestScore > originalAlpha ? TranspositionTable.BOUND_EXACT
+                : TranspositionTable.BOUND_UPPER;
+        table.store(key, bestMove, scoreToTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    /**
+     * Searches only captures and promotions until the position is quiet. The side to move can
+     * stand pat, keeping the static score, unless it is in check: then every evasion is searched,
+     * so a mate at the end of a trade is seen.
+     */
+    private int quiescence(int ply, int alpha, int beta) {
+
+        nodes++;
+        if (nodes >= nodeLimit || ((nodes & TIME_CHECK_MASK) == 0L && isTimeUp())) {
+            stopped = true;
+        }
+        if (stopped) {
+            return 0;
+        }
+        // Captures cannot repeat a position, but they can leave too little to mate
+        if (board.getBitBoard().isInsufficientMaterial()) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return Evaluation.evaluate(board);
+        }
+
+        int[] moves = moveBuffers[ply];
+        int count;
+        int bestScore;
+        if (moveGenerator.isInCheck(board.getSideToMove())) {
+            count = moveGenerator.generateLegalMoves(moves);
+            if (count == 0) {
+                return -MATE_SCORE + ply;
+            }
+            bestScore = -INFINITY;
+        } else {
+            bestScore = Evaluation.evaluate(board);
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            alpha = Math.max(alpha, bestScore);
+            count = moveGenerator.generateLegalCaptures(moves);
+        }
+
+        int[] scores = moveScores[ply];
+        scoreMoves(moves, scores, count, ply, Move.NONE);
+        for (int i = 0; i < count; i++) {
+            pickMove(moves, scores, i, count);
+            board.makeMove(moves[i]);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            board.unmakeMove();
+
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    private void scoreMoves(int[] moves, int[] scores, int count, int ply, int tableMove) {
+
+        int side = board.getSideToMove().ordinal() << 12;
+        int firstKiller = killers[ply * 2];
+        int secondKiller = killers[ply * 2 + 1];
+
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (move == tableMove) {
+                scores[i] = TABLE_MOVE_SCORE;
+            } else if (Move.isCapture(move) || Move.isPromotion(move)) {
+                // Victim first, then the promotion piece, then the cheapest attacker
+                scores[i] = CAPTURE_SCORE + (Move.captured(move) + 1) * 64
+                        + Move.promotion(move) * 8 - Move.piece(move);
+            } else if (move == firstKiller) {
+                scores[i] = KILLER_SCORE + 1;
+            } else if (move == secondKiller) {
+                scores[i] = KILLER_SCORE;
+            } else {
+                scores[i] = history[side | (Move.from(move) << 6) | Move.to(move)];
+            }
+        }
+    }
+
+    // Moves the move with the highest score among the rest to the index, the others keep order
+    private static void pickMove(int[] moves, int[] scores, int index, int count) {
+
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            int move = moves[best];
+            int score = scores[best];
+            moves[best] = moves[index];
+            scores[best] = scores[index];
+            moves[index] = move;
+            scores[index] = score;
+        }
+    }
+
+    private void rememberQuietCutoff(int move, int ply, int depth) {
+
+        if (killers[ply * 2] != move) {
+            killers[ply * 2 + 1] = killers[ply * 2];
+            killers[ply * 2] = move;
+        }
+
+        // Deeper cutoffs saved more work, so they count more
+        int index = (board.getSideToMove().ordinal() << 12) | (Move.from(move) << 6)
+                | Move.to(move);
+        history[index] += depth * depth;
+        if (history[index] > HISTORY_LIMIT) {
+            ageHistory();
+        }
+    }
+
+    // Halves the history, so old cutoffs weigh less than new ones
+    private void ageHistory() {
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 1;
+        }
+    }
+
+    // Mate and tablebase scores are stored as the distance from the stored position, not from
+    // the root
+    private static int scoreToTable(int score, int ply) {
+        if (score >= TABLEBASE_BOUND) {
+            return score + ply;
+        } else if (score <= -TABLEBASE_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= TABLEBASE_BOUND) {
+            return score - ply;
+        } else if (score <= -TABLEBASE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Draws read from the counters of the board. A position that occurred once before is a draw
+     * in the tree already, as playing it again only repeats the same choice. The fifty-move rule
+     * does not draw a position in check, which may be a mate.
+     */
+    private boolean isDrawByRule() {
+        return board.getRepetitionCount() >= 2 || board.getBitBoard().isInsufficientMaterial()
+                || (board.getHalfmoveClock() >= GameStatus.FIFTY_MOVE_PLIES
+                && !moveGenerator.isInCheck(board.getSideToMove()));
+    }
+
+    private boolean isTimeUp() {
+        return stopRequested || System.currentTimeMillis() >= deadline;
+    }
+
+    private static void moveToFront(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Move;
+
+/**
+ * Outcome of one Search call: the best move of the deepest finished iteration, its score from the
+ * point of view of the side to move and the work spent on it.
+ */
+public final class SearchResult {
+
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long timeMillis;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long timeMillis) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+    }
+
+    // Move.NONE only when the side to move has no legal move
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public long getNodesPerSecond() {
+        return nodes * 1000L / Math.max(timeMillis, 1L);
+    }
+
+    @Override
+    public String toString() {
+        return "depth " + depth + " score " + score + " move " + Move.toNotation(bestMove)
+                + " nodes " + nodes + " time " + timeMillis + " ms";
+    }
+}
@@ -0,0 +1,191 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.BitBoard;
+import com.mrk.bsuir.model.Position;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exact results of the positions with few pieces, read from the table files of a directory
+ * (see TablebaseFile), so neither MoveService nor Search has to search them.
+ * Files are memory-mapped, and the inflated blocks are kept in a cache of a bounded amount of
+ * blocks, the least recently used one is dropped first. One instance is shared by all the search
+ * threads: the cache is locked only to find and put a block, which is inflated outside the lock.
+ * Probe latency and the hit rate of the cache are counted for the benchmarks and the log.
+ *
+ * This is not a reader of the Syzygy format: its files are read by the same scheme, but they
+ * are written by BitbaseGenerator.generateTablebase through TablebaseFile.
+ */
+public class Tablebase implements Closeable {
+
+    // Probe result when the position is not in the tables
+    public static final int NONE = -1;
+
+    public static final int DEFAULT_CACHE_BLOCKS = 256;
+
+    private final TablebaseFile[] files;
+    private final int maxPieces;
+    private final Map<Long, byte[]> cache;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder probeNanos = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    // Squares of the pieces of the index, one buffer per thread
+    private final ThreadLocal<int[]> squares = ThreadLocal.withInitial(() -> new int[16]);
+
+    public Tablebase(Path directory) throws IOException {
+        this(directory, DEFAULT_CACHE_BLOCKS);
+    }
+
+    public Tablebase(Path directory, int cacheBlocks) throws IOException {
+
+        List<TablebaseFile> found = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory,
+                "*" + TablebaseFile.EXTENSION)) {
+            for (Path path : paths) {
+                String name = path.getFileName().toString();
+                name = name.substring(0, name.length() - TablebaseFile.EXTENSION.length());
+                found.add(new TablebaseFile(path, EndgameIndex.of(name)));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (TablebaseFile file : found) {
+                file.close();
+            }
+            throw e;
+        }
+
+        files = found.toArray(new TablebaseFile[0]);
+        int pieces = 0;
+        for (TablebaseFile file : files) {
+            pieces = Math.max(pieces, file.getIndex().getPieceCount());
+        }
+        maxPieces = pieces;
+
+        cache = new LinkedHashMap<Long, byte[]>(cacheBlocks * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > cacheBlocks;
+            }
+        };
+    }
+
+    // Largest amount of pieces, kings included, of the tables
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    public int getTableCount() {
+        return files.length;
+    }
+
+    /**
+     * Looks the position up. The result holds the result for the side to move and the distance
+     * to zeroing, read by wdl and dtz, or it is NONE when there is no table of this material.
+     * Positions with castling rights or an en passant square are not in the tables.
+     */
+    public int probe(Position position) {
+
+        BitBoard bitBoard = position.getBitBoard();
+        if (Long.bitCount(bitBoard.getAllOccupancy()) > maxPieces
+                || position.getCastlingRights() != 0 || position.getEnPassantSquare() >= 0) {
+            return NONE;
+        }
+
+        long start = System.nanoTime();
+        long signature = EndgameIndex.signatureOf(bitBoard);
+        int result = NONE;
+        for (int i = 0; i < files.length; i++) {
+            EndgameIndex index = files[i].getIndex();
+            if (index.getSignature() == signature || index.getFlippedSignature() == signature) {
+                boolean flip = index.getSignature() != signature;
+                result = read(i, index.index(bitBoard, position.getSideToMove(), flip,
+                        squares.get()));
+                break;
+            }
+        }
+        probes.increment();
+        probeNanos.add(System.nanoTime() - start);
+        return result;
+    }
+
+    // Result for the side to move: 1 for a win, 0 for a draw and -1 for a loss
+    public static int wdl(int probe) {
+        return (probe & 3) - TablebaseFile.DRAW;
+    }
+
+    // Plies to the mate, a capture or a pawn move that keeps the result, 0 for a draw
+    public static int dtz(int probe) {
+        return probe >>> 2;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getAverageProbeNanos() {
+        long count = probes.sum();
+        return count == 0 ? 0L : probeNanos.sum() / count;
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    // Part of the block reads served by the cache, from 0 to 1
+    public double getCacheHitRate() {
+        long hits = cacheHits.sum();
+        long total = hits + cacheMisses.sum();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (cache) {
+            cache.clear();
+        }
+        for (TablebaseFile file : files) {
+            file.close();
+        }
+    }
+
+    private int read(int fileNumber, long index) {
+
+        TablebaseFile file = files[fileNumber];
+        int blockEntries = file.getBlockEntries();
+        int block = (int) (index / blockEntries);
+        long key = ((long) fileNumber << 32) | block;
+
+        byte[] entries;
+        synchronized (cache) {
+            entries = cache.get(key);
+        }
+        if (entries != null) {
+            cacheHits.increment();
+        } else {
+            cacheMisses.increment();
+            entries = file.readBlock(block);
+            synchronized (cache) {
+                cache.put(key, entries);
+            }
+        }
+
+        int offset = (int) (index % blockEntries) * 2;
+        int code = entries[offset] & 0xFF;
+        return code == TablebaseFile.ILLEGAL ? NONE : code | (entries[offset + 1] & 0xFF) << 2;
+    }
+}
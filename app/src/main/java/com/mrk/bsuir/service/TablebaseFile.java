@@ -0,0 +1,180 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.exceptions.TablebaseException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One endgame table file, named after its material, like KQvK.ctb. Every position of the
+ * EndgameIndex has two bytes: the result for the side to move (0 for illegal positions, then
+ * loss, draw and win) and the distance to zeroing in plies, the number of plies to the mate, to
+ * a capture or to a pawn move that keeps the result, capped at 255.
+ * The entries are cut into blocks, which are compressed separately, so a probe inflates only the
+ * block of its position. The file is memory-mapped and only the blocks are decompressed.
+ * Layout: magic, version, entry count, entries per block, block count, the offsets of the
+ * blocks and the end of the last one, then the blocks.
+ */
+public final class TablebaseFile {
+
+    public static final String EXTENSION = ".ctb";
+    public static final int DEFAULT_BLOCK_ENTRIES = 4096;
+
+    // Entry codes of the result byte
+    public static final int ILLEGAL = 0;
+    public static final int LOSS = 1;
+    public static final int DRAW = 2;
+    public static final int WIN = 3;
+
+    // Largest distance to zeroing, it has one byte
+    public static final int MAX_DTZ = 255;
+
+    private static final int MAGIC = 0x43435442;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+
+    private final EndgameIndex index;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int blockEntries;
+    private final int blockCount;
+
+    TablebaseFile(Path file, EndgameIndex index) throws IOException {
+
+        this.index = index;
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        if (channel.size() > Integer.MAX_VALUE) {
+            channel.close();
+            throw new TablebaseException("Table " + file + " is larger than 2 GB");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != VERSION || buffer.getLong(8) != index.size()) {
+            channel.close();
+            throw new TablebaseException("Not a table of " + index.getName() + ": " + file);
+        }
+        blockEntries = buffer.getInt(16);
+        blockCount = buffer.getInt(20);
+        if (blockEntries < 1 || (long) blockCount * blockEntries < index.size()
+                || HEADER_SIZE + 8L * (blockCount + 1) > buffer.limit()) {
+            channel.close();
+            throw new TablebaseException("Wrong blocks in the table " + file);
+        }
+    }
+
+    public EndgameIndex getIndex() {
+        return index;
+    }
+
+    int getBlockEntries() {
+        return blockEntries;
+    }
+
+    /**
+     * Inflates the block, two bytes for each of its positions. The offsets are checked here, so
+     * a broken file fails with a TablebaseException and not in the middle of the buffer.
+     */
+    byte[] readBlock(int block) {
+
+        long start = buffer.getLong(HEADER_SIZE + block * 8);
+        long end = buffer.getLong(HEADER_SIZE + (block + 1) * 8);
+        if (start < HEADER_SIZE + 8L * (blockCount + 1) || end < start
+                || end > buffer.limit()) {
+            throw new TablebaseException("Block " + block + " of " + index.getName()
+                    + " is out of the file");
+        }
+        // The copy has its own position, so the threads do not share one
+        byte[] compressed = new byte[(int) (end - start)];
+        ByteBuffer source = buffer.duplicate();
+        source.position((int) start);
+        source.get(compressed);
+
+        byte[] entries = new byte[blockEntries * 2];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < entries.length && !inflater.finished()) {
+                int inflated = inflater.inflate(entries, length, entries.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Block ends early");
+                }
+                length += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new TablebaseException("Block " + block + " of " + index.getName()
+                    + " is broken");
+        } finally {
+            inflater.end();
+        }
+        return entries;
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Writes the table of the material, two bytes per position in the order of the index, as
+     * described in the class comment.
+     */
+    public static void write(Path file, EndgameIndex index, byte[] entries, int blockEntries)
+            throws IOException {
+
+        if (entries.length != index.size() * 2) {
+            throw new IllegalArgumentException("Table of " + index.getName() + " should have "
+                    + index.size() + " entries");
+        }
+        int blockCount = (int) ((index.size() + blockEntries - 1) / blockEntries);
+        long[] offsets = new long[blockCount + 1];
+        offsets[0] = HEADER_SIZE + 8L * (blockCount + 1);
+
+        Path blocks = Files.createTempFile(file.toAbsolutePath().getParent(), index.getName(),
+                ".tmp");
+        try {
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            byte[] output = new byte[blockEntries * 2 + 64];
+            try (OutputStream out = Files.newOutputStream(blocks)) {
+                for (int block = 0; block < blockCount; block++) {
+                    int start = block * blockEntries * 2;
+                    deflater.reset();
+                    deflater.setInput(entries, start,
+                            Math.min(blockEntries * 2, entries.length - start));
+                    deflater.finish();
+                    long length = 0;
+                    while (!deflater.finished()) {
+                        int written = deflater.deflate(output);
+                        out.write(output, 0, written);
+                        length += written;
+                    }
+                    offsets[block + 1] = offsets[block] + length;
+                }
+            } finally {
+                deflater.end();
+            }
+
+            ByteBuffer header = ByteBuffer.allocate((int) offsets[0]);
+            header.putInt(MAGIC).putInt(VERSION).putLong(index.size()).putInt(blockEntries)
+                    .putInt(blockCount);
+            for (long offset : offsets) {
+                header.putLong(offset);
+            }
+            try (OutputStream out = Files.newOutputStream(file)) {
+                out.write(header.array());
+                Files.copy(blocks, out);
+            }
+        } finally {
+            Files.delete(blocks);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Move;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Results of already searched positions, found by the Zobrist key of the position. Entries are
+ * kept in two primitive arrays, the key and the packed data of every entry, so the table takes
+ * a fixed amount of memory and creates no objects during the search.
+ * The table is split into buckets of four entries. A new entry takes the place of the entry with
+ * the same key, then of an empty one, then of the one left by the oldest search and of the
+ * shallowest one among them.
+ * Entry data: bits 0-23 best move, 24-39 score, 40-47 depth, 48-49 bound and 50-57 the
+ * generation of the search that stored it. Data of a stored entry is never 0, since the bound is
+ * never 0.
+ * Several search threads share one table without locks. The key cell holds the key XOR the data,
+ * so an entry written by two threads at once, with the key of one and the data of the other,
+ * does not match either key and is read as a miss.
+ */
+public class TranspositionTable {
+
+    public static final int BOUND_UPPER = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_EXACT = 3;
+
+    private static final int BUCKET_SIZE = 4;
+
+    // Key and data of an entry take 16 bytes
+    private static final int ENTRY_BYTES = 16;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+    private int generation;
+
+    // Counters are striped, so the threads do not fight over one cache line on every probe
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder overwrites = new LongAdder();
+
+    /**
+     * Creates the table of the given size in megabytes. The amount of buckets is rounded down to
+     * a power of two, so the bucket of a key is found with a mask.
+     */
+    public TranspositionTable(int sizeMb) {
+
+        long entries = Math.max((long) sizeMb * 1024 * 1024 / ENTRY_BYTES, BUCKET_SIZE);
+        int buckets = Integer.highestOneBit((int) Math.min(entries / BUCKET_SIZE, 1 << 26));
+
+        keys = new long[buckets * BUCKET_SIZE];
+        data = new long[buckets * BUCKET_SIZE];
+        bucketMask = buckets - 1;
+    }
+
+    // Returns the data of the entry with the key or 0 if there is no such entry
+    public long probe(long key) {
+
+        int start = bucketStart(key);
+        for (int i = start; i < start + BUCKET_SIZE; i++) {
+            long entry = data[i];
+            if (entry != 0L && (keys[i] ^ entry) == key) {
+                hits.increment();
+                return entry;
+            }
+        }
+        misses.increment();
+        return 0L;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+
+        int start = bucketStart(key);
+        int target = start;
+        int targetValue = Integer.MAX_VALUE;
+
+        for (int i = start; i < start + BUCKET_SIZE; i++) {
+            long entry = data[i];
+            if (entry == 0L || (keys[i] ^ entry) == key) {
+                // The best move of the older entry is kept, if this search has not found one
+                if (entry != 0L && move == Move.NONE) {
+                    move = entryMove(entry);
+                }
+                target = i;
+                targetValue = Integer.MIN_VALUE;
+                break;
+            }
+
+            // Entries of older searches go first, every search makes them 256 plies cheaper
+            int age = (generation - entryGeneration(entry)) & 0xFF;
+            int value = entryDepth(entry) - age * 256;
+            if (value < targetValue) {
+                target = i;
+                targetValue = value;
+            }
+        }
+
+        long previous = data[target];
+        if (previous != 0L && (keys[target] ^ previous) != key) {
+            overwrites.increment();
+        }
+        long entry = pack(move, score, depth, bound, generation);
+        keys[target] = key ^ entry;
+        data[target] = entry;
+    }
+
+    /**
+     * Called before every new search, so entries of the previous ones can be replaced first.
+     * It should not be called while any thread is searching.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        for (int i = 0; i < data.length; i++) {
+            keys[i] = 0L;
+            data[i] = 0L;
+        }
+        hits.reset();
+        misses.reset();
+        overwrites.reset();
+    }
+
+    public int getCapacity() {
+        return data.length;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getOverwrites() {
+        return overwrites.sum();
+    }
+
+    public static int entryMove(long entry) {
+        return (int) (entry & 0xFFFFFF);
+    }
+
+    public static int entryScore(long entry) {
+        return (short) (entry >>> 24);
+    }
+
+    public static int entryDepth(long entry) {
+        return (int) ((entry >>> 40) & 0xFF);
+    }
+
+    public static int entryBound(long entry) {
+        return (int) ((entry >>> 48) & 0x3);
+    }
+
+    private static int entryGeneration(long entry) {
+        return (int) ((entry >>> 50) & 0xFF);
+    }
+
+    private static long pack(int move, int score, int depth, int bound, int generation) {
+        return (move & 0xFFFFFFL) | ((score & 0xFFFFL) << 24) | ((long) (depth & 0xFF) << 40)
+                | ((long) bound << 48) | ((long) generation << 50);
+    }
+
+    private int bucketStart(long key) {
+        return (int) (key & bucketMask) * BUCKET_SIZE;
+    }
+}
@@ -0,0 +1,38 @@
+package com.mrk.bsuir.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class AttacksTest {
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    @Test
+    public void magicAttacks_matchRayAttacks() {
+        Random random = new Random(5);
+
+        for (int i = 0; i < 20000; i++) {
+            // Sparse and dense occupancies both appear
+            long occupied = random.nextLong() & random.nextLong();
+            if ((i & 1) == 0) {
+                occupied |= random.nextLong();
+            }
+            int square = random.nextInt(64);
+
+            assertEquals(Attacks.slidingAttacks(square, occupied, ROOK_DIRECTIONS),
+                    Attacks.rookAttacks(square, occupied));
+            assertEquals(Attacks.slidingAttacks(square, occupied, BISHOP_DIRECTIONS),
+                    Attacks.bishopAttacks(square, occupied));
+        }
+    }
+
+    @Test
+    public void sliderTables_haveExpectedSize() {
+        // 102400 rook attack sets and 5248 bishop ones
+        assertEquals(107648, Attacks.sliderTableSize());
+    }
+}
@@ -0,0 +1,76 @@
+package com.mrk.bsuir.model;
+
+import com.mrk.bsuir.service.MoveGenerator;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class BitBoardTest {
+
+    @Test
+    public void attackMaps_matchAttackersAfterMakeAndUnmake() {
+        Board board = new Board();
+        MoveGenerator generator = new MoveGenerator(board);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        Random random = new Random(3);
+
+        int plies = 0;
+        for (int step = 0; step < 300; step++) {
+            int count = generator.generateLegalMoves(moves);
+            // Go back now and then, so restored maps are checked as well
+            if (count == 0 || (plies > 0 && random.nextInt(3) == 0)) {
+                board.unmakeMove();
+                plies--;
+            } else {
+                board.makeMove(moves[random.nextInt(count)]);
+                plies++;
+            }
+            assertAttackMaps(board.getBitBoard(), "step " + step);
+        }
+    }
+
+    @Test
+    public void materialSignature_isKeptUpToDateByMoves() {
+        Board board = new Board();
+        MoveGenerator generator = new MoveGenerator(board);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        Random random = new Random(5);
+
+        int plies = 0;
+        for (int step = 0; step < 400; step++) {
+            int count = generator.generateLegalMoves(moves);
+            if (count == 0 || (plies > 0 && random.nextInt(4) == 0)) {
+                board.unmakeMove();
+                plies--;
+            } else {
+                board.makeMove(moves[random.nextInt(count)]);
+                plies++;
+            }
+
+            BitBoard bitBoard = board.getBitBoard();
+            long expected = 0L;
+            for (int color = 0; color < 2; color++) {
+                for (int type = 0; type < PieceType.COUNT; type++) {
+                    expected += Long.bitCount(bitBoard.getPieces(color, type))
+                            * BitBoard.materialOf(color, type);
+                }
+            }
+            assertEquals("step " + step, expected, bitBoard.getMaterialSignature());
+        }
+    }
+
+    private static void assertAttackMaps(BitBoard bitBoard, String message) {
+        for (int color = 0; color < 2; color++) {
+            long expected = 0L;
+            for (int square = 0; square < 64; square++) {
+                if (bitBoard.attackersOf(square, color, bitBoard.getAllOccupancy()) != 0L) {
+                    expected |= 1L << square;
+                }
+            }
+            assertEquals(message, expected, bitBoard.getAttackMap(color));
+        }
+    }
+}
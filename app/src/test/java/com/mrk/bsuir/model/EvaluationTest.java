@@ -0,0 +1,62 @@
+package com.mrk.bsuir.model;
+
+import com.mrk.bsuir.service.MoveGenerator;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class EvaluationTest {
+
+    @Test
+    public void startPosition_isEqual() {
+        Board board = new Board();
+
+        assertEquals(0, Evaluation.whiteScore(board.getBitBoard()));
+        assertEquals(Evaluation.MAX_PHASE, board.getBitBoard().getPhase());
+    }
+
+    @Test
+    public void incrementalScores_matchAScanOfTheBoard() {
+        Board board = new Board();
+        MoveGenerator generator = new MoveGenerator(board);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        Random random = new Random(5);
+
+        int plies = 0;
+        for (int step = 0; step < 400; step++) {
+            int count = generator.generateLegalMoves(moves);
+            // Go back now and then, so scores restored by unmake are checked as well
+            if (count == 0 || (plies > 0 && random.nextInt(3) == 0)) {
+                board.unmakeMove();
+                plies--;
+            } else {
+                board.makeMove(moves[random.nextInt(count)]);
+                plies++;
+            }
+            assertScores(board.getBitBoard(), "step " + step);
+            assertScores(new BitBoard(board.getBitBoard()), "copy at step " + step);
+        }
+    }
+
+    private static void assertScores(BitBoard bitBoard, String message) {
+        int middlegame = 0;
+        int endgame = 0;
+        int phase = 0;
+        for (int square = 0; square < 64; square++) {
+            int type = bitBoard.getPieceType(square);
+            if (type < 0) {
+                continue;
+            }
+            int color = (bitBoard.getOccupancy(0) & (1L << square)) != 0L ? 0 : 1;
+            middlegame += Evaluation.middlegameScore(color, type, square);
+            endgame += Evaluation.endgameScore(color, type, square);
+            phase += Evaluation.phaseWeight(type);
+        }
+        assertEquals(message, middlegame, bitBoard.getMiddlegameScore());
+        assertEquals(message, endgame, bitBoard.getEndgameScore());
+        assertEquals(message, phase, bitBoard.getPhase());
+    }
+}
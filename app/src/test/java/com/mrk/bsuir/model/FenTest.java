@@ -0,0 +1,119 @@
+package com.mrk.bsuir.model;
+
+import com.mrk.bsuir.exceptions.FenException;
+import com.mrk.bsuir.model.impl.King;
+import com.mrk.bsuir.model.impl.Rook;
+import com.mrk.bsuir.service.MoveGenerator;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FenTest {
+
+    private static final String[] POSITIONS = {
+            Board.START_FEN,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 b - - 12 40"
+    };
+
+    @Test
+    public void setFen_writesTheSameFenBack() {
+        Board board = new Board();
+        for (String fen : POSITIONS) {
+            board.setFen(fen);
+            assertEquals(fen, board.getFen());
+            assertEquals(fen, board.computeZobristKey(), board.getZobristKey());
+            assertEquals(fen, new Board(board).getFen());
+        }
+    }
+
+    @Test
+    public void startFen_isTheStartPosition() {
+        Board board = new Board();
+        board.setFen("8/8/8/8/8/8/8/K6k w - - 0 1");
+        board.setFen(Board.START_FEN);
+        assertEquals(new Board().getZobristKey(), board.getZobristKey());
+        assertEquals(Board.START_FEN, new Board().getFen());
+    }
+
+    @Test
+    public void castlingRights_becomeFirstMoveFlags() {
+        Board board = new Board();
+        board.setFen("r3k2r/8/8/8/8/8/8/R3K2R w Kq - 0 1");
+
+        assertEquals(Board.WHITE_SHORT_CASTLING | Board.BLACK_LONG_CASTLING,
+                board.getCastlingRights());
+        assertTrue(board.getKingOfThisColor(Color.WHITE).isFirstMove());
+        assertTrue(((Rook) board.getPieceFromCell(7, 0)).isFirstMove());
+        assertFalse(((Rook) board.getPieceFromCell(0, 0)).isFirstMove());
+        assertFalse(((Rook) board.getPieceFromCell(7, 7)).isFirstMove());
+        assertTrue(board.getPieceFromCell(4, 7) instanceof King);
+    }
+
+    @Test
+    public void counters_followTheMovesAndTheUndo() {
+        Board board = new Board();
+        board.setFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b KQkq - 7 20");
+        MoveGenerator generator = new MoveGenerator(board);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        String[] fens = new String[60];
+        Random random = new Random(3);
+
+        int plies = 0;
+        while (plies < fens.length) {
+            int count = generator.generateLegalMoves(moves);
+            if (count == 0) {
+                break;
+            }
+            fens[plies++] = board.getFen();
+            int move = moves[random.nextInt(count)];
+            int halfmoveClock = board.getHalfmoveClock();
+            board.makeMove(move);
+            assertEquals(Move.piece(move) == PieceType.PAWN.ordinal() || Move.isCapture(move)
+                    ? 0 : halfmoveClock + 1, board.getHalfmoveClock());
+        }
+        assertEquals(20 + plies / 2, board.getFullmoveNumber());
+
+        while (plies > 0) {
+            board.unmakeMove();
+            assertEquals(fens[--plies], board.getFen());
+        }
+    }
+
+    @Test
+    public void wrongFen_leavesTheBoardUnchanged() {
+        Board board = new Board();
+        String[] wrong = {
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQQBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KX - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e4 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - x 1"
+        };
+        for (String fen : wrong) {
+            try {
+                board.setFen(fen);
+                fail(fen);
+            } catch (FenException e) {
+                assertEquals(Board.START_FEN, board.getFen());
+            }
+        }
+    }
+
+    @Test
+    public void countersMayBeOmitted() {
+        Board board = new Board();
+        board.setFen("8/8/8/8/8/8/8/K6k b -");
+        assertEquals("8/8/8/8/8/8/8/K6k b - - 0 1", board.getFen());
+    }
+}
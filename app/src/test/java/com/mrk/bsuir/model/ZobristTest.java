@@ -0,0 +1,93 @@
+package com.mrk.bsuir.model;
+
+import com.mrk.bsuir.service.MoveGenerator;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class ZobristTest {
+
+    @Test
+    public void incrementalKey_matchesKeyFromScratch() {
+        Board board = new Board();
+        MoveGenerator generator = new MoveGenerator(board);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        Random random = new Random(7);
+
+        assertEquals(board.computeZobristKey(), board.getZobristKey());
+        for (int ply = 0; ply < 200; ply++) {
+            int count = generator.generateLegalMoves(moves);
+            if (count == 0) {
+                break;
+            }
+            board.makeMove(moves[random.nextInt(count)]);
+            assertEquals("ply " + ply, board.computeZobristKey(), board.getZobristKey());
+        }
+    }
+
+    @Test
+    public void unmakeMove_restoresTheKeyOfEveryPly() {
+        Board board = new Board();
+        MoveGenerator generator = new MoveGenerator(board);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        long[] keys = new long[100];
+        Random random = new Random(11);
+
+        int plies = 0;
+        while (plies < keys.length) {
+            int count = generator.generateLegalMoves(moves);
+            if (count == 0) {
+                break;
+            }
+            keys[plies++] = board.getZobristKey();
+            board.makeMove(moves[random.nextInt(count)]);
+        }
+        while (plies > 0) {
+            board.unmakeMove();
+            plies--;
+            assertEquals("ply " + plies, keys[plies], board.getZobristKey());
+            assertEquals("ply " + plies, board.computeZobristKey(), board.getZobristKey());
+        }
+        assertEquals(new Board().getZobristKey(), board.getZobristKey());
+    }
+
+    @Test
+    public void transposedMoveOrders_giveTheSameKey() {
+        Board first = new Board();
+        play(first, "g1f3", "g8f6", "b1c3", "b8c6");
+        Board second = new Board();
+        play(second, "b1c3", "b8c6", "g1f3", "g8f6");
+
+        assertEquals(first.getZobristKey(), second.getZobristKey());
+        assertNotEquals(new Board().getZobristKey(), first.getZobristKey());
+    }
+
+    @Test
+    public void keyDependsOnEnPassantAndSideToMove() {
+        Board doublePush = new Board();
+        play(doublePush, "e2e4");
+        Board twoSinglePushes = new Board();
+        play(twoSinglePushes, "e2e3", "a7a6", "e3e4");
+
+        // Same pieces, but the en passant file and the side to move differ
+        assertNotEquals(doublePush.getZobristKey(), twoSinglePushes.getZobristKey());
+    }
+
+    private static void play(Board board, String... notations) {
+        MoveGenerator generator = new MoveGenerator(board);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (String notation : notations) {
+            int count = generator.generateLegalMoves(moves);
+            for (int i = 0; i < count; i++) {
+                if (Move.toNotation(moves[i]).equals(notation)) {
+                    board.makeMove(moves[i]);
+                    break;
+                }
+            }
+        }
+    }
+}
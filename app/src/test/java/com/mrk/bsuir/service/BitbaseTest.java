@@ -0,0 +1,194 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Color;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The tables without the knight and the bishop are small enough to be generated here. Every
+ * result is checked against the results after the moves of MoveGenerator, so the generator
+ * cannot disagree with the rules of the app.
+ */
+public class BitbaseTest {
+
+    private static Bitbase generated;
+
+    private static synchronized Bitbase generate() {
+        if (generated == null) {
+            ForkJoinPool pool = new ForkJoinPool(2);
+            BitbaseGenerator generator = new BitbaseGenerator(pool);
+            generator.generate("KQvK");
+            generator.generate("KRvK");
+            generator.generate("KPvK");
+            pool.shutdown();
+            generated = generator.getBitbase();
+        }
+        return generated;
+    }
+
+    @Test
+    public void probe_knowsTheTheoryOfKingAndPawn() {
+        Bitbase bitbase = generate();
+        Board board = new Board();
+
+        // The king on the sixth rank in front of its pawn wins whoever moves
+        board.setFen("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1");
+        assertEquals(Bitbase.WIN, bitbase.probe(board));
+        board.setFen("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1");
+        assertEquals(Bitbase.LOSS, bitbase.probe(board));
+
+        // The rook pawn cannot drive the king out of the corner, and the pawn on the seventh
+        // rank wins only if black is not stalemated
+        board.setFen("k7/8/K7/P7/8/8/8/8 w - - 0 1");
+        assertEquals(Bitbase.DRAW, bitbase.probe(board));
+        board.setFen("4k3/4P3/4K3/8/8/8/8/8 w - - 0 1");
+        assertEquals(Bitbase.WIN, bitbase.probe(board));
+        board.setFen("4k3/4P3/4K3/8/8/8/8/8 b - - 0 1");
+        assertEquals(Bitbase.DRAW, bitbase.probe(board));
+
+        // Black with the pawn is read from the same table
+        board.setFen("8/8/8/8/4p3/4k3/8/4K3 b - - 0 1");
+        assertEquals(Bitbase.WIN, bitbase.probe(board));
+
+        board.setFen("k7/2Q5/1K6/8/8/8/8/8 b - - 0 1");
+        assertEquals(Bitbase.DRAW, bitbase.probe(board));
+        board.setFen("8/8/8/3k4/8/8/8/KBN5 w - - 0 1");
+        assertEquals(Bitbase.NONE, bitbase.probe(board));
+    }
+
+    @Test
+    public void probe_agreesWithTheMovesOfEveryPosition() {
+        Bitbase bitbase = generate();
+        Board board = new Board();
+        MoveGenerator moveGenerator = new MoveGenerator(board);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+        for (String material : new String[] {"KQvK", "KRvK", "KPvK"}) {
+            EndgameIndex index = EndgameIndex.of(material);
+            int[] squares = new int[index.getPieceCount()];
+            int checked = 0;
+            for (long i = 0; i < index.size(); i += 7) {
+                int side = index.squaresOf(i, squares);
+                String fen = legalFen(index, squares, side);
+                if (fen == null) {
+                    continue;
+                }
+                board.setFen(fen);
+                if (moveGenerator.isInCheck(Color.byIndex(1 - side))) {
+                    continue;
+                }
+
+                int count = moveGenerator.generateLegalMoves(moves);
+                int best = moveGenerator.isInCheck(board.getSideToMove())
+                        ? Bitbase.LOSS : Bitbase.DRAW;
+                if (count > 0) {
+                    best = Bitbase.LOSS;
+                    for (int j = 0; j < count; j++) {
+                        board.makeMove(moves[j]);
+                        // Captures leave a bare king, which is no table
+                        int result = bitbase.probe(board);
+                        best = Math.max(best, result == Bitbase.NONE ? Bitbase.DRAW : -result);
+                        board.unmakeMove();
+                    }
+                }
+                assertEquals(fen, best, bitbase.probe(board));
+                checked++;
+            }
+            assertTrue(material, checked > index.size() / 20);
+        }
+    }
+
+    @Test
+    public void load_readsTheTablesOfTheApp() throws Exception {
+        Bitbase bitbase = Bitbase.load();
+        assertEquals(Bitbase.MATERIALS.length, bitbase.getTableCount());
+        Board board = new Board();
+
+        board.setFen("8/8/8/3k4/8/8/8/KBN5 w - - 0 1");
+        assertEquals(Bitbase.WIN, bitbase.probe(board));
+        // The bare king takes the undefended knight
+        board.setFen("8/8/8/8/8/8/3k4/KB1N4 b - - 0 1");
+        assertEquals(Bitbase.DRAW, bitbase.probe(board));
+
+        Bitbase small = generate();
+        for (String fen : new String[] {"4k3/8/4K3/4P3/8/8/8/8 b - - 0 1",
+                "8/2k5/8/8/8/3K4/8/6R1 w - - 0 1", "2k5/8/1K6/8/8/8/8/1Q6 b - - 0 1"}) {
+            board.setFen(fen);
+            assertEquals(fen, small.probe(board), bitbase.probe(board));
+        }
+    }
+
+    @Test
+    public void search_drawsAndStillMates() {
+        Bitbase bitbase = generate();
+
+        Board board = new Board();
+        board.setFen("k7/8/K7/P7/8/8/8/8 w - - 0 1");
+        Search search = new Search(board);
+        search.setBitbase(bitbase);
+        assertEquals(0, search.search(6, 0L, 0L).getScore());
+
+        board.setFen("k7/8/1K6/8/8/8/8/6Q1 w - - 0 1");
+        search = new Search(board);
+        search.setBitbase(bitbase);
+        SearchResult result = search.search(4, 0L, 0L);
+        assertTrue(result.toString(), result.getScore() >= Search.MATE_BOUND);
+
+        // Without a mate in sight the known win scores above any evaluation
+        board.setFen("8/8/8/3k4/8/8/8/K6R w - - 0 1");
+        search = new Search(board);
+        search.setBitbase(bitbase);
+        result = search.search(2, 0L, 0L);
+        assertTrue(result.toString(), result.getScore() > Search.BITBASE_WIN_SCORE / 2);
+    }
+
+    // FEN of the squares, or null when two pieces share a cell or a pawn is on the last rank
+    private static String legalFen(EndgameIndex index, int[] squares, int side) {
+        char[] cells = new char[64];
+        for (int i = 0; i < squares.length; i++) {
+            int square = squares[i];
+            char letter = "PNBRQK".charAt(index.getType(i));
+            if (cells[square] != 0 || (letter == 'P' && (square < 8 || square >= 56))) {
+                return null;
+            }
+            cells[square] = index.getColor(i) == 0 ? letter : Character.toLowerCase(letter);
+        }
+        // Kings next to each other are left out too
+        int whiteKing = squares[0];
+        int blackKing = squares[squares.length - 1];
+        if (Math.abs(whiteKing % 8 - blackKing % 8) <= 1
+                && Math.abs(whiteKing / 8 - blackKing / 8) <= 1) {
+            return null;
+        }
+
+        StringBuilder fen = new StringBuilder();
+        for (int y = 7; y >= 0; y--) {
+            int empty = 0;
+            for (int x = 0; x < 8; x++) {
+                char cell = cells[y * 8 + x];
+                if (cell == 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                fen.append(cell);
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (y > 0) {
+                fen.append('/');
+            }
+        }
+        return fen.append(side == 0 ? " w - - 0 1" : " b - - 0 1").toString();
+    }
+}
@@ -0,0 +1,60 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Move;
+import com.mrk.bsuir.model.PieceType;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class GameLogServiceTest {
+
+    @Test
+    public void notation_isWrittenFromTheEncodedMoves() {
+        Board board = new Board();
+        GameLogService logService = new GameLogService();
+        play(board, logService, "e2e4", "d7d5", "e4d5", "d8d5", "b1c3", "d5e5");
+        logService.markLastMove(Action.CHECK);
+
+        assertEquals(6, logService.getCurrentMove());
+        assertEquals("P4143", logService.getMoveByNumber(0));
+        assertEquals("P43xP34", logService.getMoveByNumber(2));
+        assertEquals("Q3444+", logService.getLastMove());
+        assertEquals(PieceType.PAWN, logService.findBeatenPiece(3));
+        assertNull(logService.findBeatenPiece(4));
+
+        logService.undoLastMove();
+        assertEquals("N1022", logService.getLastMove());
+    }
+
+    @Test
+    public void record_growsPastItsFirstArray() {
+        Board board = new Board();
+        GameLogService logService = new GameLogService();
+
+        for (int i = 0; i < 40; i++) {
+            play(board, logService, "g1f3", "g8f6", "f3g1", "f6g8");
+        }
+
+        assertEquals(160, logService.getCurrentMove());
+        assertEquals("N6052", logService.getMoveByNumber(0));
+        assertEquals("N5567", logService.getLastMove());
+    }
+
+    private static void play(Board board, GameLogService logService, String... notations) {
+        MoveGenerator generator = new MoveGenerator(board);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (String notation : notations) {
+            int count = generator.generateLegalMoves(moves);
+            for (int i = 0; i < count; i++) {
+                if (Move.toNotation(moves[i]).equals(notation)) {
+                    board.makeMove(moves[i]);
+                    logService.logMove(moves[i]);
+                    break;
+                }
+            }
+        }
+    }
+}
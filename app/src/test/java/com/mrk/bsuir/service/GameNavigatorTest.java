@@ -0,0 +1,76 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Board;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class GameNavigatorTest {
+
+    @Test
+    public void seek_setsUpThePositionOfEveryPly() {
+        Board board = new Board();
+        GameLogService record = new GameLogService();
+        GameNavigator navigator = new GameNavigator(board, record, 8);
+        String[] fens = playRandomGame(board, navigator, 150, new Random(5));
+        int length = navigator.getLength();
+
+        Random random = new Random(9);
+        for (int i = 0; i < 300; i++) {
+            int ply = i % 3 == 0 ? navigator.getPly() + random.nextInt(5) - 2
+                    : random.nextInt(length + 1);
+            ply = Math.max(0, Math.min(length, ply));
+            navigator.seek(ply);
+
+            assertEquals(ply, record.getCurrentMove());
+            assertEquals("ply " + ply, fens[ply], board.getFen());
+            assertEquals(board.computeZobristKey(), board.getZobristKey());
+        }
+    }
+
+    @Test
+    public void newMove_dropsTheUndoneMoves() {
+        Board board = new Board();
+        GameLogService record = new GameLogService();
+        GameNavigator navigator = new GameNavigator(board, record, 4);
+        String[] first = playRandomGame(board, navigator, 30, new Random(1));
+
+        navigator.seek(10);
+        String[] second = playRandomGame(board, navigator, 20, new Random(2));
+        assertEquals(second.length - 1 + 10, navigator.getLength());
+        assertFalse(navigator.canGoForward());
+
+        navigator.seek(0);
+        navigator.seek(10);
+        assertEquals(first[10], board.getFen());
+        for (int ply = navigator.getLength(); ply >= 0; ply -= 3) {
+            navigator.seek(ply);
+            assertEquals(ply >= 10 ? second[ply - 10] : first[ply], board.getFen());
+        }
+    }
+
+    // Plays random legal moves and returns the FEN of every ply, from the current one
+    private static String[] playRandomGame(Board board, GameNavigator navigator, int plies,
+                                           Random random) {
+        MoveGenerator generator = new MoveGenerator(board);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        String[] fens = new String[plies + 1];
+
+        int ply = 0;
+        fens[0] = board.getFen();
+        while (ply < plies) {
+            int count = generator.generateLegalMoves(moves);
+            if (count == 0) {
+                break;
+            }
+            navigator.play(moves[random.nextInt(count)]);
+            fens[++ply] = board.getFen();
+        }
+        return Arrays.copyOf(fens, ply + 1);
+    }
+}
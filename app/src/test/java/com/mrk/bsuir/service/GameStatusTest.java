@@ -0,0 +1,105 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Move;
+import com.mrk.bsuir.model.PositionSnapshot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GameStatusTest {
+
+    @Test
+    public void status_followsTheGame() {
+        Board board = new Board();
+        assertEquals(GameStatus.NORMAL, GameStatus.of(board));
+
+        play(board, "e2e4", "f7f6", "d1h5");
+        assertEquals(GameStatus.CHECK, GameStatus.of(board));
+
+        board.unmakeMove();
+        play(board, "d2d4", "g7g5", "d1h5");
+        assertEquals(GameStatus.CHECKMATE, GameStatus.of(new PositionSnapshot(board)));
+    }
+
+    @Test
+    public void draws_areReadFromTheCountersOfTheBoard() {
+        Board board = new Board();
+        play(board, "g1f3", "g8f6", "f3g1", "f6g8", "g1f3", "g8f6", "f3g1");
+        assertEquals(2, board.getRepetitionCount());
+        play(board, "f6g8");
+        assertEquals(3, board.getRepetitionCount());
+        assertEquals(GameStatus.REPETITION, GameStatus.of(new PositionSnapshot(board)));
+        // A copy of the board knows the game before it
+        assertEquals(GameStatus.REPETITION, GameStatus.of(new Board(board)));
+        board.unmakeMove();
+        assertEquals(GameStatus.NORMAL, GameStatus.of(board));
+
+        // A pawn move starts the count again. The position right after it is repeated, as no
+        // pawn can take en passant
+        play(board, "f6g8", "e2e4", "g8f6", "g1f3", "f6g8", "f3g1");
+        assertEquals(2, board.getRepetitionCount());
+
+        board.setFen("8/8/8/4k3/8/8/3R4/4K3 w - - 99 80");
+        assertEquals(GameStatus.NORMAL, GameStatus.of(board));
+        play(board, "d2d3");
+        assertEquals(GameStatus.FIFTY_MOVES, GameStatus.of(board));
+        assertTrue(GameStatus.FIFTY_MOVES.isGameOver());
+
+        board.setFen("8/8/3bk3/8/8/8/8/2B1K3 w - - 0 1");
+        assertEquals(GameStatus.INSUFFICIENT_MATERIAL, GameStatus.of(board));
+        board.setFen("8/8/4bk2/8/8/8/8/2B1K3 w - - 0 1");
+        assertEquals(GameStatus.NORMAL, GameStatus.of(board));
+        board.setFen("8/8/4k3/8/8/8/8/1NN1K3 w - - 0 1");
+        assertEquals(GameStatus.NORMAL, GameStatus.of(board));
+        board.setFen("8/8/4k3/8/8/8/8/1N2K3 w - - 0 1");
+        assertEquals(GameStatus.INSUFFICIENT_MATERIAL, GameStatus.of(board));
+    }
+
+    @Test
+    public void repetitions_countAcrossTheCheckpointsOfTheNavigator() {
+        Board board = new Board();
+        GameNavigator navigator = new GameNavigator(board, new GameLogService(), 2);
+        String[] shuffle = {"g1f3", "g8f6", "f3g1", "f6g8"};
+        for (int i = 0; i < 8; i++) {
+            play(board, navigator, shuffle[i % 4]);
+        }
+        assertEquals(3, board.getRepetitionCount());
+
+        // The last ply is set up from its checkpoint, the earlier keys come from the navigator
+        navigator.seek(0);
+        assertEquals(1, board.getRepetitionCount());
+        navigator.seek(8);
+        assertEquals(3, board.getRepetitionCount());
+        navigator.seek(6);
+        assertEquals(GameStatus.NORMAL, GameStatus.of(board));
+        assertEquals(2, board.getRepetitionCount());
+    }
+
+    private static void play(Board board, GameNavigator navigator, String notation) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = new MoveGenerator(board).generateLegalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if (Move.toNotation(moves[i]).equals(notation)) {
+                navigator.play(moves[i]);
+                return;
+            }
+        }
+    }
+
+    private static void play(Board board, String... notations) {
+        MoveGenerator generator = new MoveGenerator(board);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (String notation : notations) {
+            int count = generator.generateLegalMoves(moves);
+            for (int i = 0; i < count; i++) {
+                if (Move.toNotation(moves[i]).equals(notation)) {
+                    board.makeMove(moves[i]);
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.BitBoard;
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Color;
+import com.mrk.bsuir.model.Move;
+import com.mrk.bsuir.model.Piece;
+import com.mrk.bsuir.model.PositionSnapshot;
+import com.mrk.bsuir.model.impl.King;
+import com.mrk.bsuir.model.impl.Pawn;
+import com.mrk.bsuir.model.impl.Rook;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validation should only read the position: the board stays the same after any question and a
+ * snapshot answers the same from several threads at once.
+ */
+public class MoveServiceTest {
+
+    @Test
+    public void validation_doesNotChangeTheBoard() {
+        Board board = new Board();
+        MoveService moveService = new MoveService(board);
+        long key = board.getZobristKey();
+        String flags = firstMoveFlags(board);
+        King king = board.getKingOfThisColor(Color.WHITE);
+
+        for (int from = 0; from < 64; from++) {
+            Piece piece = board.getPieceFromSquare(from);
+            if (piece == null) {
+                continue;
+            }
+            int x = BitBoard.squareX(from);
+            int y = BitBoard.squareY(from);
+            for (int to = 0; to < 64; to++) {
+                moveService.allowPieceMove(x, y, BitBoard.squareX(to), BitBoard.squareY(to), piece);
+                moveService.isThisCellUnderAttack(BitBoard.squareX(to), BitBoard.squareY(to),
+                        piece.getColor());
+            }
+            if (piece.getColor() == Color.WHITE && piece != king) {
+                moveService.checkIfProtectingKing(x, y, king);
+            }
+        }
+        moveService.checkCheckmate(king);
+
+        assertEquals(key, board.getZobristKey());
+        assertEquals(flags, firstMoveFlags(board));
+    }
+
+    @Test
+    public void snapshot_answersTheSameFromSeveralThreads() throws Exception {
+        Board board = new Board();
+        MoveGenerator boardGenerator = new MoveGenerator(board);
+        PositionSnapshot snapshot = new PositionSnapshot(board);
+        int[] expected = legalTargets(boardGenerator);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<int[]>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            // Generators keep buffers, so every task has its own one over the shared snapshot
+            results.add(executor.submit(() -> legalTargets(new MoveGenerator(snapshot))));
+        }
+        for (Future<int[]> result : results) {
+            assertArrayEquals(expected, result.get());
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void pinnedPieces_areFoundOncePerPosition() {
+        Board board = new Board();
+        MoveService moveService = new MoveService(board);
+        MoveGenerator generator = moveService.getMoveGenerator();
+        makeMoves(generator, board, "e2e4", "e7e5", "f1b5");
+
+        King king = board.getKingOfThisColor(Color.BLACK);
+        assertEquals(1L << BitBoard.square(3, 6), generator.getPinnedPieces(Color.BLACK));
+        assertTrue(moveService.checkIfProtectingKing(3, 6, king));
+        assertFalse(moveService.checkIfProtectingKing(2, 6, king));
+
+        // The pinned pawn cannot move, the pawn beside it still can
+        assertEquals(Move.NONE, generator.findLegalMove(BitBoard.square(3, 6),
+                BitBoard.square(3, 5), Color.BLACK));
+        assertNotEquals(Move.NONE, generator.findLegalMove(BitBoard.square(2, 6),
+                BitBoard.square(2, 5), Color.BLACK));
+
+        makeMoves(generator, board, "c7c6");
+        assertEquals(0L, generator.getPinnedPieces(Color.BLACK));
+    }
+
+    private static void makeMoves(MoveGenerator generator, Board board, String... notations) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (String notation : notations) {
+            int count = generator.generateLegalMoves(moves);
+            for (int i = 0; i < count; i++) {
+                if (Move.toNotation(moves[i]).equals(notation)) {
+                    board.makeMove(moves[i]);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static int[] legalTargets(MoveGenerator generator) {
+        int[] targets = new int[64 * 64];
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                targets[from * 64 + to] = generator.findLegalMove(from, to, Color.WHITE);
+            }
+        }
+        return targets;
+    }
+
+    private static String firstMoveFlags(Board board) {
+        StringBuilder flags = new StringBuilder();
+        for (int square = 0; square < 64; square++) {
+            Piece piece = board.getPieceFromSquare(square);
+            if (piece instanceof Pawn) {
+                flags.append(((Pawn) piece).isFirstMove() ? 'P' : 'p');
+            } else if (piece instanceof Rook) {
+                flags.append(((Rook) piece).isFirstMove() ? 'R' : 'r');
+            } else if (piece instanceof King) {
+                flags.append(((King) piece).isFirstMove() ? 'K' : 'k');
+            }
+        }
+        return flags.toString();
+    }
+}
@@ -0,0 +1,67 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Board;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Node counts of the start position and of the other perft positions are well known, so any
+ * difference means a bug in the move generation.
+ */
+public class PerftTest {
+
+    private static final long[] START_POSITION_NODES = {1L, 20L, 400L, 8902L, 197281L,
+            4865609L};
+
+    @Test
+    public void startPosition_matchesKnownNodeCounts() {
+        Perft perft = new Perft(new Board());
+        for (int depth = 1; depth < START_POSITION_NODES.length; depth++) {
+            assertEquals("depth " + depth, START_POSITION_NODES[depth], perft.perft(depth));
+        }
+    }
+
+    @Test
+    public void otherPositions_matchKnownNodeCounts() {
+        Board board = new Board();
+
+        board.setFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        assertEquals(4085603L, new Perft(board).perft(4));
+
+        board.setFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+        assertEquals(43238L, new Perft(board).perft(4));
+
+        board.setFen("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1");
+        assertEquals(9467L, new Perft(board).perft(3));
+
+        board.setFen("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8");
+        assertEquals(62379L, new Perft(board).perft(3));
+    }
+
+    @Test
+    public void divide_sumsToPerft() {
+        Map<String, Long> divide = new Perft(new Board()).divide(3);
+
+        long nodes = 0L;
+        for (long moveNodes : divide.values()) {
+            nodes += moveNodes;
+        }
+        assertEquals(20, divide.size());
+        assertEquals(8902L, nodes);
+        assertEquals(Long.valueOf(600L), divide.get("e2e4"));
+    }
+
+    @Test
+    public void parallelPerft_matchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        long nodes = new Perft(new Board()).parallelPerft(4, pool);
+        pool.shutdown();
+
+        assertEquals(197281L, nodes);
+    }
+}
@@ -0,0 +1,149 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Move;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PgnTest {
+
+    @Test
+    public void san_isWrittenWithDisambiguationAndCheck() {
+        Board board = new Board();
+        GameLogService record = new GameLogService();
+        play(board, record, "g1f3", "e7e5", "d2d3", "f8b4", "b1d2", "e5e4", "d3e4");
+
+        PgnGame game = PgnWriter.fromRecord(record, Collections.<String, String>emptyMap(), "*");
+
+        assertEquals(Arrays.asList("Nf3", "e5", "d3", "Bb4+", "Nbd2", "e4", "dxe4"),
+                game.getMoves());
+    }
+
+    @Test
+    public void writtenGame_isReadAndReplayedBack() throws Exception {
+        Board board = new Board();
+        GameLogService record = new GameLogService();
+        play(board, record, "f2f3", "e7e5", "g2g4", "d8h4");
+        PgnGame game = PgnWriter.fromRecord(record,
+                Collections.singletonMap("Event", "Fool's \"mate\""), "0-1");
+
+        StringWriter text = new StringWriter();
+        new PgnWriter(text).write(game);
+        // A comment, a variation and a game without a result around the written one
+        String file = text + "{ next } 1. e4 (1. d4 d5) e5 2. Nf3 $1\n[Event \"?\"]\n\n1. d4\n";
+
+        PgnReader reader = new PgnReader(Channels.newChannel(
+                new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8))));
+        PgnGame first = reader.next();
+        PgnGame second = reader.next();
+        PgnGame third = reader.next();
+
+        assertEquals("Fool's \"mate\"", first.getTag("Event"));
+        assertEquals(Arrays.asList("f3", "e5", "g4", "Qh4#"), first.getMoves());
+        assertEquals("0-1", first.getResult());
+        assertEquals(Arrays.asList("e4", "e5", "Nf3"), second.getMoves());
+        assertEquals(Collections.singletonList("d4"), third.getMoves());
+        assertNull(reader.next());
+
+        Board replayed = new Board();
+        San san = new San(replayed);
+        for (String notation : first.getMoves()) {
+            replayed.makeMove(san.parse(notation));
+        }
+        assertEquals(board.getZobristKey(), replayed.getZobristKey());
+        assertEquals(Move.NONE, san.parse("Qh5"));
+    }
+
+    @Test
+    public void gameFromAPosition_isWrittenWithItsFen() throws Exception {
+        String fen = "r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 3 20";
+        Board board = new Board();
+        board.setFen(fen);
+        GameLogService record = new GameLogService();
+        new GameNavigator(board, record);
+        play(board, record, "e8g8", "e1c1", "a8a1");
+        PgnGame game = PgnWriter.fromRecord(record, Collections.<String, String>emptyMap(), "*");
+
+        assertEquals("1", game.getTag("SetUp"));
+        assertEquals(fen, game.getTag("FEN"));
+        assertEquals(Arrays.asList("O-O", "O-O-O", "Ra1+"), game.getMoves());
+
+        StringWriter text = new StringWriter();
+        new PgnWriter(text).write(game);
+        PgnGame read = new PgnReader(Channels.newChannel(new ByteArrayInputStream(
+                text.toString().getBytes(StandardCharsets.UTF_8)))).next();
+
+        Board replayed = new Board();
+        replayed.setFen(read.getTag("FEN"));
+        San san = new San(replayed);
+        for (String notation : read.getMoves()) {
+            replayed.makeMove(san.parse(notation));
+        }
+        assertEquals(board.getZobristKey(), replayed.getZobristKey());
+        assertNull(PgnWriter.fromRecord(new GameLogService(),
+                Collections.<String, String>emptyMap(), "*").getTag("FEN"));
+    }
+
+    @Test
+    public void replay_countsInvalidGames() throws Exception {
+        String file = "1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 1-0\n\n1. e4 e5 2. Ke3 *\n\n"
+                + "[FEN \"8/8/8/8/8/8/8/K6k w - - 0 1\"]\n\n1. Kb2 *\n\n"
+                + "[FEN \"8/8/8/8/8/8/8/K7 w - - 0 1\"]\n\n1. Kb2 *\n\n1. d4 d5 *\n";
+        PgnReader reader = new PgnReader(Channels.newChannel(
+                new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8))));
+
+        PgnReplay replay = new PgnReplay();
+        replay.replay(reader, 2);
+
+        assertEquals(5, replay.getGames());
+        assertEquals(2, replay.getInvalidGames());
+        assertEquals(11, replay.getMoves());
+    }
+
+    @Test(timeout = 10000)
+    public void replay_goesOnAfterGamesThatFail() throws Exception {
+        // The black king can be taken, and the promotion after it fails on the missing king.
+        // Two threads have a queue of 128 games, a dead worker would leave it full
+        StringBuilder file = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            file.append("[FEN \"4k2Q/8/8/8/8/8/p7/4K3 w - - 0 1\"]\n\n1. Qxe8 a1=Q *\n\n");
+        }
+        for (int i = 0; i < 300; i++) {
+            file.append("1. e4 e5 2. Nf3 *\n\n");
+        }
+        PgnReader reader = new PgnReader(Channels.newChannel(new ByteArrayInputStream(
+                file.toString().getBytes(StandardCharsets.UTF_8))));
+
+        PgnReplay replay = new PgnReplay();
+        replay.replay(reader, 2);
+
+        assertEquals(304, replay.getGames());
+        assertEquals(4, replay.getInvalidGames());
+        assertEquals(900, replay.getMoves());
+    }
+
+    private static void play(Board board, GameLogService record, String... notations) {
+        MoveGenerator generator = new MoveGenerator(board);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (String notation : notations) {
+            int count = generator.generateLegalMoves(moves);
+            for (int i = 0; i < count; i++) {
+                if (Move.toNotation(moves[i]).equals(notation)) {
+                    board.makeMove(moves[i]);
+                    record.logMove(moves[i]);
+                    break;
+                }
+            }
+        }
+    }
+}
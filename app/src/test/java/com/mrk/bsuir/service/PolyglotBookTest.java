@@ -0,0 +1,127 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Move;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PolyglotBookTest {
+
+    @Test
+    public void movesOfThePosition_areFoundWithTheirWeights() throws Exception {
+        Board board = new Board();
+        long start = PolyglotKey.key(board);
+        board.setFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        long castling = PolyglotKey.key(board);
+
+        Path file = writeBook(
+                entry(start, "e2e4", 30), entry(start, "d2d4", 10), entry(start, "c2c4", 0),
+                entry(start - 1, "g1f3", 5), entry(start + 1, "b1c3", 5),
+                entry(castling, "e1h1", 1), entry(castling, "e1a1", 1),
+                entry(0x8000000000000000L, "a2a3", 1), entry(-1L, "h2h3", 1));
+
+        try (PolyglotBook book = new PolyglotBook(file)) {
+            assertEquals(9, book.getEntryCount());
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int[] weights = new int[MoveGenerator.MAX_MOVES];
+
+            board.setFen(Board.START_FEN);
+            assertEquals(2, book.findMoves(board, moves, weights));
+            assertEquals("e2e4", Move.toNotation(moves[0]));
+            assertEquals(30, weights[0]);
+            assertEquals("d2d4", Move.toNotation(moves[1]));
+
+            board.setFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+            assertEquals(2, book.findMoves(board, moves, weights));
+            assertTrue(Move.isCastling(moves[0]) && Move.isCastling(moves[1]));
+
+            board.setFen("8/8/8/8/8/8/8/K6k w - - 0 1");
+            assertEquals(Move.NONE, book.pickMove(board, new Random(1)));
+        }
+    }
+
+    @Test
+    public void pickMove_followsTheWeights() throws Exception {
+        Board board = new Board();
+        long start = PolyglotKey.key(board);
+        Path file = writeBook(entry(start, "e2e4", 3), entry(start, "d2d4", 1));
+
+        try (PolyglotBook book = new PolyglotBook(file)) {
+            Random random = new Random(3);
+            int kingPawn = 0;
+            for (int i = 0; i < 4000; i++) {
+                if (Move.toNotation(book.pickMove(board, random)).equals("e2e4")) {
+                    kingPawn++;
+                }
+            }
+            assertTrue(String.valueOf(kingPawn), kingPawn > 2800 && kingPawn < 3200);
+        }
+    }
+
+    @Test
+    public void enPassantFile_countsOnlyWhenAPawnCanTake() {
+        Board board = new Board();
+        board.setFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+        long withSquare = PolyglotKey.key(board);
+        board.setFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1");
+        assertEquals(withSquare, PolyglotKey.key(board));
+
+        board.setFen("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 3");
+        withSquare = PolyglotKey.key(board);
+        board.setFen("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 3");
+        assertNotEquals(withSquare, PolyglotKey.key(board));
+    }
+
+    // Keys published with the format, the last two positions have an en passant file
+    @Test
+    public void keys_matchTheKeysOfTheFormat() {
+        Board board = new Board();
+        assertEquals(PolyglotKey.START_POSITION_KEY, PolyglotKey.key(board));
+
+        String[] fens = {
+                "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1",
+                "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2",
+                "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2",
+                "rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4",
+                "rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3"};
+        long[] keys = {0x823C9B50FD114196L, 0x0756B94461C50FB0L, 0x662FAFB965DB29D4L,
+                0x00FDD303C946BDD9L, 0x5C3F9B829B279560L, 0x22A48B5A8E47FF78L,
+                0x3C8123EA7B067637L};
+        for (int i = 0; i < fens.length; i++) {
+            board.setFen(fens[i]);
+            assertEquals(fens[i], keys[i], PolyglotKey.key(board));
+        }
+    }
+
+    private static Path writeBook(long[]... entries) throws Exception {
+        Arrays.sort(entries, (a, b) -> Long.compareUnsigned(a[0], b[0]));
+        ByteBuffer buffer = ByteBuffer.allocate(entries.length * PolyglotBook.ENTRY_SIZE);
+        for (long[] entry : entries) {
+            buffer.putLong(entry[0]).putShort((short) entry[1]).putShort((short) entry[2])
+                    .putInt(0);
+        }
+        Path file = Files.createTempFile("book", ".bin");
+        file.toFile().deleteOnExit();
+        Files.write(file, buffer.array());
+        return file;
+    }
+
+    // Key, move and weight, the move in the Polyglot encoding
+    private static long[] entry(long key, String move, int weight) {
+        int encoded = (move.charAt(2) - 'a') | (move.charAt(3) - '1') << 3
+                | (move.charAt(0) - 'a') << 6 | (move.charAt(1) - '1') << 9;
+        return new long[]{key, encoded, weight};
+    }
+}
@@ -0,0 +1,90 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Move;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SearchTest {
+
+    @Test
+    public void foolsMate_isFoundAsMate() {
+        Board board = new Board();
+        play(board, "f2f3", "e7e5", "g2g4");
+
+        SearchResult result = new Search(board).search(4, 0L, 0L);
+
+        assertEquals("d8h4", Move.toNotation(result.getBestMove()));
+        assertTrue(result.getScore() >= Search.MATE_BOUND);
+    }
+
+    @Test
+    public void nodeBudget_stopsTheSearchAndKeepsTheBoard() {
+        Board board = new Board();
+        long key = board.getZobristKey();
+
+        SearchResult result = new Search(board).search(Search.MAX_PLY, 0L, 20000L);
+
+        assertTrue(result.getNodes() <= 20000L);
+        assertTrue(result.getDepth() >= 1);
+        assertNotEquals(Move.NONE, result.getBestMove());
+        assertEquals(key, board.getZobristKey());
+    }
+
+    @Test
+    public void quiescence_seesTheRecapture() {
+        Board board = new Board();
+        play(board, "e2e4", "e7e5", "d1h5", "b8c6");
+
+        // Both pawns are defended, so taking them loses the queen one ply behind the depth
+        int move = new Search(board).search(1, 0L, 0L).getBestMove();
+
+        assertNotEquals("h5e5", Move.toNotation(move));
+        assertNotEquals("h5f7", Move.toNotation(move));
+    }
+
+    @Test
+    public void parallelSearch_findsTheMateAndKeepsTheBoard() {
+        Board board = new Board();
+        play(board, "f2f3", "e7e5", "g2g4");
+        long key = board.getZobristKey();
+
+        SearchResult result = new ParallelSearch(board, new TranspositionTable(1), 4)
+                .search(4, 0L, 0L);
+
+        assertEquals("d8h4", Move.toNotation(result.getBestMove()));
+        assertTrue(result.getScore() >= Search.MATE_BOUND);
+        assertEquals(key, board.getZobristKey());
+    }
+
+    @Test
+    public void parallelSearch_stoppedBeforeItStarts_returnsNoMove() {
+        Board board = new Board();
+        ParallelSearch search = new ParallelSearch(board, new TranspositionTable(1), 2);
+        search.stop();
+        // The copies were taken by the constructor, later moves do not reach the search
+        play(board, "e2e4");
+
+        SearchResult result = search.search(Search.MAX_PLY, 0L, 0L);
+        assertEquals(Move.NONE, result.getBestMove());
+        assertEquals(0L, result.getNodes());
+    }
+
+    private static void play(Board board, String... notations) {
+        MoveGenerator generator = new MoveGenerator(board);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (String notation : notations) {
+            int count = generator.generateLegalMoves(moves);
+            for (int i = 0; i < count; i++) {
+                if (Move.toNotation(moves[i]).equals(notation)) {
+                    board.makeMove(moves[i]);
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.exceptions.TablebaseException;
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Color;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The first table here is made up: every position is won for white with a distance taken from
+ * its index, so the probes can be checked against the index. The real tables of KQvK and KRvK are
+ * generated and checked against known mates.
+ */
+public class TablebaseTest {
+
+    @Test
+    public void index_isTheSameForMirroredPositions() {
+        EndgameIndex index = EndgameIndex.of("KRvK");
+        int[] squares = new int[index.getPieceCount()];
+        Board board = new Board();
+
+        board.setFen("8/8/8/8/8/2k5/8/K6R w - - 0 1");
+        long original = index.index(board.getBitBoard(), Color.WHITE, false, squares);
+        board.setFen("R6K/8/5k2/8/8/8/8/8 w - - 0 1");
+        assertEquals(original, index.index(board.getBitBoard(), Color.WHITE, false, squares));
+        board.setFen("k6r/8/2K5/8/8/8/8/8 b - - 0 1");
+        assertEquals(original, index.index(board.getBitBoard(), Color.BLACK, true, squares));
+
+        assertEquals(16L * 64 * 64 * 2, index.size());
+        int side = index.squaresOf(original, squares);
+        assertEquals(original, index.indexOf(squares, side));
+        assertEquals(32L * 64 * 64 * 2, EndgameIndex.of("KvKP").size());
+    }
+
+    @Test
+    public void probe_readsTheTableAndCountsTheCache() throws Exception {
+        Path directory = Files.createTempDirectory("tablebase");
+        EndgameIndex index = EndgameIndex.of("KQvK");
+        byte[] entries = new byte[(int) index.size() * 2];
+        for (int i = 0; i < index.size(); i++) {
+            entries[2 * i] = (byte) (i % 2 == 0 ? TablebaseFile.WIN : TablebaseFile.LOSS);
+            entries[2 * i + 1] = (byte) (i / 2 % 200);
+        }
+        Path file = directory.resolve("KQvK" + TablebaseFile.EXTENSION);
+        TablebaseFile.write(file, index, entries, 256);
+
+        try (Tablebase tablebase = new Tablebase(directory, 4)) {
+            assertEquals(3, tablebase.getMaxPieces());
+            Board board = new Board();
+            int[] squares = new int[3];
+
+            board.setFen("8/8/8/3k4/8/8/8/KQ6 w - - 0 1");
+            int probe = tablebase.probe(board);
+            long position = index.index(board.getBitBoard(), Color.WHITE, false, squares);
+            assertEquals(1, Tablebase.wdl(probe));
+            assertEquals(position / 2 % 200, Tablebase.dtz(probe));
+
+            // The same position with the colors swapped comes from the same table
+            board.setFen("kq6/8/8/8/3K4/8/8/8 b - - 0 1");
+            assertEquals(probe, tablebase.probe(board));
+            board.setFen("8/8/8/3k4/8/8/8/KQ6 b - - 0 1");
+            assertEquals(-1, Tablebase.wdl(tablebase.probe(board)));
+
+            board.setFen("8/8/8/3k4/8/8/8/KR6 w - - 0 1");
+            assertEquals(Tablebase.NONE, tablebase.probe(board));
+            board.setFen(Board.START_FEN);
+            assertEquals(Tablebase.NONE, tablebase.probe(board));
+
+            assertEquals(4, tablebase.getProbes());
+            assertEquals(1, tablebase.getCacheMisses());
+            assertEquals(2, tablebase.getCacheHits());
+            assertTrue(tablebase.getCacheHitRate() > 0.6);
+
+            // Positions after every white move are lost for black in this table
+            board.setFen("8/8/8/3k4/8/8/8/KQ6 w - - 0 1");
+            Search search = new Search(board);
+            search.setTablebase(tablebase);
+            SearchResult result = search.search(2, 0L, 0L);
+            assertTrue(result.toString(), result.getScore() > Search.TABLEBASE_WIN_SCORE - 300);
+        } finally {
+            Files.delete(file);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void generatedTables_knowTheDistancesToMate() throws Exception {
+        Path directory = Files.createTempDirectory("tablebase");
+        ForkJoinPool pool = new ForkJoinPool(2);
+        BitbaseGenerator generator = new BitbaseGenerator(pool);
+        Path queen = directory.resolve("KQvK" + TablebaseFile.EXTENSION);
+        Path rook = directory.resolve("KRvK" + TablebaseFile.EXTENSION);
+        try {
+            byte[] queenEntries = generator.generateTablebase("KQvK");
+            byte[] rookEntries = generator.generateTablebase("KRvK");
+            // The longest wins are mates in 10 and in 16 moves
+            assertEquals(19, longestWin(queenEntries));
+            assertEquals(31, longestWin(rookEntries));
+            TablebaseFile.write(queen, EndgameIndex.of("KQvK"), queenEntries, 256);
+            TablebaseFile.write(rook, EndgameIndex.of("KRvK"), rookEntries, 256);
+        } finally {
+            pool.shutdown();
+        }
+
+        try (Tablebase tablebase = new Tablebase(directory)) {
+            Board board = new Board();
+
+            // Mated, then mate in one
+            board.setFen("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1");
+            assertProbe(-1, 0, tablebase.probe(board));
+            board.setFen("k7/7Q/1K6/8/8/8/8/8 w - - 0 1");
+            assertProbe(1, 1, tablebase.probe(board));
+            board.setFen("k7/2K5/8/8/8/8/8/R7 b - - 0 1");
+            assertProbe(-1, 0, tablebase.probe(board));
+            board.setFen("k7/2K5/8/8/8/8/8/7R w - - 0 1");
+            assertProbe(1, 1, tablebase.probe(board));
+
+            // Black to move with the rook of white: 1...Kb8 2.Rh8#
+            board.setFen("k7/7R/1K6/8/8/8/8/8 b - - 0 1");
+            assertProbe(-1, 2, tablebase.probe(board));
+
+            // Stalemate and the capture of the rook draw
+            board.setFen("k7/2Q5/1K6/8/8/8/8/8 b - - 0 1");
+            assertProbe(0, 0, tablebase.probe(board));
+            board.setFen("8/8/8/8/8/8/kR6/7K b - - 0 1");
+            assertProbe(0, 0, tablebase.probe(board));
+        } finally {
+            Files.delete(queen);
+            Files.delete(rook);
+            Files.delete(directory);
+        }
+    }
+
+    private static int longestWin(byte[] entries) {
+        int longest = 0;
+        for (int i = 0; i < entries.length; i += 2) {
+            if (entries[i] == TablebaseFile.WIN) {
+                longest = Math.max(longest, entries[i + 1] & 0xFF);
+            }
+        }
+        return longest;
+    }
+
+    private static void assertProbe(int wdl, int dtz, int probe) {
+        assertEquals(wdl, Tablebase.wdl(probe));
+        assertEquals(dtz, Tablebase.dtz(probe));
+    }
+
+    @Test
+    public void brokenOffsets_failWithTheExceptionOfTheTables() throws Exception {
+        Path directory = Files.createTempDirectory("tablebase");
+        EndgameIndex index = EndgameIndex.of("KQvK");
+        Path file = directory.resolve("KQvK" + TablebaseFile.EXTENSION);
+        TablebaseFile.write(file, index, new byte[(int) index.size() * 2], 256);
+
+        // Every block offset, after the header of 24 bytes, points past the end of the file
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        for (int i = 0; i <= bytes.getInt(20); i++) {
+            bytes.putLong(24 + 8 * i, 1L << 40);
+        }
+        Files.write(file, bytes.array());
+
+        try (Tablebase tablebase = new Tablebase(directory, 4)) {
+            Board board = new Board();
+            board.setFen("8/8/8/3k4/8/8/8/KQ6 w - - 0 1");
+            tablebase.probe(board);
+            fail("Broken table is read");
+        } catch (TablebaseException e) {
+            // The offsets are checked before the block is copied
+        } finally {
+            Files.delete(file);
+            Files.delete(directory);
+        }
+    }
+}
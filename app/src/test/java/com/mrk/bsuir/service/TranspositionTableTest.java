@@ -0,0 +1,82 @@
+package com.mrk.bsuir.service;
+
+import com.mrk.bsuir.model.Move;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void storedEntry_isReadBack() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Move.encode(12, 28, 0, -1, 0, Move.FLAG_DOUBLE_PUSH);
+
+        table.store(0x1234L, move, -29990, 17, TranspositionTable.BOUND_LOWER);
+        long entry = table.probe(0x1234L);
+
+        assertEquals(move, TranspositionTable.entryMove(entry));
+        assertEquals(-29990, TranspositionTable.entryScore(entry));
+        assertEquals(17, TranspositionTable.entryDepth(entry));
+        assertEquals(TranspositionTable.BOUND_LOWER, TranspositionTable.entryBound(entry));
+        assertEquals(0L, table.probe(0x4321L));
+        assertEquals(1L, table.getHits());
+        assertEquals(1L, table.getMisses());
+    }
+
+    @Test
+    public void fullBucket_replacesTheShallowestEntry() {
+        TranspositionTable table = new TranspositionTable(1);
+        long buckets = table.getCapacity() / 4;
+
+        // Keys with the same low bits fall into one bucket
+        for (int i = 0; i < 4; i++) {
+            table.store(1L + i * buckets, Move.NONE, 0, 10 + i, TranspositionTable.BOUND_EXACT);
+        }
+        table.store(1L + 4 * buckets, Move.NONE, 0, 5, TranspositionTable.BOUND_EXACT);
+
+        assertEquals(0L, table.probe(1L));
+        assertEquals(5, TranspositionTable.entryDepth(table.probe(1L + 4 * buckets)));
+        assertEquals(13, TranspositionTable.entryDepth(table.probe(1L + 3 * buckets)));
+        assertEquals(1L, table.getOverwrites());
+    }
+
+    @Test
+    public void entriesStoredFromSeveralThreads_matchTheirKeys() throws Exception {
+        // A tiny table, so the threads write over the same buckets all the time
+        TranspositionTable table = new TranspositionTable(0);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        for (int thread = 0; thread < 4; thread++) {
+            int id = thread;
+            results.add(executor.submit(() -> {
+                boolean consistent = true;
+                for (int i = 0; i < 200000; i++) {
+                    long key = (long) i * 0x9E3779B97F4A7C15L;
+                    // The depth and the score depend on the key, so a torn entry would show it
+                    int depth = (int) (key >>> 58);
+                    table.store(key, Move.NONE, depth + id, depth, TranspositionTable.BOUND_EXACT);
+                    long entry = table.probe(key);
+                    if (entry != 0L && (TranspositionTable.entryDepth(entry) != depth
+                            || TranspositionTable.entryScore(entry) - depth >= 4)) {
+                        consistent = false;
+                    }
+                }
+                return consistent;
+            }));
+        }
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,43 @@
+package com.mrk.bsuir.benchmark;
+
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Color;
+
+/**
+ * Fixed positions every benchmark runs against, written in FEN.
+ */
+final class BenchmarkPositions {
+
+    // Ruy Lopez after 5. O-O, black to move
+    static final String OPENING =
+            "r1bqkb1r/1ppp1ppp/p1n2n2/4p3/B3P3/5N2/PPPP1PPP/RNBQ1RK1 b kq - 3 5";
+
+    // Kiwipete: pins, checks, castling and en passant options for both sides
+    static final String MIDDLEGAME =
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    // Rook and pawns ending with both kings in the open
+    static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+
+    private BenchmarkPositions() {
+    }
+
+    static String byName(String name) {
+        switch (name) {
+            case "opening":
+                return OPENING;
+            case "middlegame":
+                return MIDDLEGAME;
+            case "endgame":
+                return ENDGAME;
+            default:
+                throw new IllegalArgumentException("Unknown position " + name);
+        }
+    }
+
+    // Replaces the position of the board and returns the side to move
+    static Color setUp(Board board, String position) {
+        board.setFen(position);
+        return board.getSideToMove();
+    }
+}
@@ -0,0 +1,75 @@
+package com.mrk.bsuir.benchmark;
+
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.service.Bitbase;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes of the bitbases shipped with the app, in probes per microsecond. A probe is the
+ * material signature, the index and one load, so it should not depend on the table; the
+ * positions of other materials measure the cost of a miss for the search. Loading reads and
+ * inflates every table from the resources.
+ * Run with: ./gradlew :benchmark:jmh -PjmhIncludes=BitbaseBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BitbaseBenchmark {
+
+    @Param({"KPvK", "KBNvK", "other"})
+    public String material;
+
+    private Bitbase bitbase;
+    private Board[] boards;
+    private int index;
+
+    @Setup
+    public void setUp() throws IOException {
+        bitbase = Bitbase.load();
+        String[] fens;
+        switch (material) {
+            case "KPvK":
+                fens = new String[] {"4k3/8/4K3/4P3/8/8/8/8 w - - 0 1",
+                        "k7/8/K7/P7/8/8/8/8 b - - 0 1", "8/8/8/8/4p3/4k3/8/4K3 b - - 0 1",
+                        "8/8/3k4/8/8/8/2P5/2K5 w - - 0 1"};
+                break;
+            case "KBNvK":
+                fens = new String[] {"8/8/8/3k4/8/8/8/KBN5 w - - 0 1",
+                        "8/8/8/8/8/8/3k4/KB1N4 b - - 0 1", "7k/5K2/5N2/8/8/8/8/6B1 w - - 0 1",
+                        "8/8/8/2n1k3/8/8/2b5/4K3 b - - 0 1"};
+                break;
+            default:
+                fens = new String[] {BenchmarkPositions.ENDGAME, BenchmarkPositions.MIDDLEGAME,
+                        "8/8/8/3k4/8/8/8/KR4R1 w - - 0 1", "8/8/8/3k4/8/8/8/K1N5 w - - 0 1"};
+        }
+        boards = new Board[fens.length];
+        for (int i = 0; i < fens.length; i++) {
+            boards[i] = new Board();
+            boards[i].setFen(fens[i]);
+        }
+    }
+
+    @Benchmark
+    public int probe() {
+        index = (index + 1) & 3;
+        return bitbase.probe(boards[index]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public long load() throws IOException {
+        return Bitbase.load().getSizeBytes();
+    }
+}
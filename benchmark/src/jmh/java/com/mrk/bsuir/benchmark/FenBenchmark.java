@@ -0,0 +1,51 @@
+package com.mrk.bsuir.benchmark;
+
+import com.mrk.bsuir.model.Board;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Setting up every position from FEN and writing it back. With the gc profiler the allocation of
+ * setFen should be only the pieces and the placement buffer, whatever the length of the text.
+ * Run with: ./gradlew :benchmark:jmh -PjmhIncludes=FenBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FenBenchmark {
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    private final Board board = new Board();
+    private final StringBuilder builder = new StringBuilder(90);
+    private String fen;
+
+    @Setup
+    public void setUp() {
+        fen = BenchmarkPositions.byName(position);
+        board.setFen(fen);
+    }
+
+    @Benchmark
+    public long setFen() {
+        board.setFen(fen);
+        return board.getZobristKey();
+    }
+
+    @Benchmark
+    public int appendFen() {
+        builder.setLength(0);
+        board.appendFen(builder);
+        return builder.length();
+    }
+}
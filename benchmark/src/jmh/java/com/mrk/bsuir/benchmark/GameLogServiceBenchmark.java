@@ -0,0 +1,68 @@
+package com.mrk.bsuir.benchmark;
+
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Color;
+import com.mrk.bsuir.model.Move;
+import com.mrk.bsuir.service.GameLogService;
+import com.mrk.bsuir.service.MoveGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A move as GameActivity plays it: made on the board and logged, then taken back from both.
+ * Everything is measured in one invocation to keep the board and the log the same during the run.
+ * Every position plays its first legal move that is neither castling nor a promotion, with a
+ * capture where the position has one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameLogServiceBenchmark {
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    private Board board;
+    private GameLogService logService;
+    private int chosenMove;
+
+    @Setup
+    public void setUp() {
+
+        board = new Board();
+        Color sideToMove = BenchmarkPositions.setUp(board, BenchmarkPositions.byName(position));
+        logService = new GameLogService();
+
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = new MoveGenerator(board).generateLegalMoves(sideToMove, moves);
+        chosenMove = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (Move.isCastling(move) || Move.isPromotion(move) || Move.isEnPassant(move)) {
+                continue;
+            }
+            if (chosenMove == Move.NONE || (Move.isCapture(move) && !Move.isCapture(chosenMove))) {
+                chosenMove = move;
+            }
+        }
+    }
+
+    @Benchmark
+    public long makeLogAndUndoMove() {
+        board.makeMove(chosenMove);
+        logService.logMove(chosenMove);
+        long key = board.getZobristKey();
+        board.unmakeMove();
+        logService.undoLastMove();
+        return key;
+    }
+}
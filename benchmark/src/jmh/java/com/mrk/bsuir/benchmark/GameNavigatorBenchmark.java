@@ -0,0 +1,70 @@
+package com.mrk.bsuir.benchmark;
+
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.service.GameLogService;
+import com.mrk.bsuir.service.GameNavigator;
+import com.mrk.bsuir.service.MoveGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jumps to random plies of a long random game. The time of a jump should depend on the interval
+ * of the checkpoints only, not on the length of the game.
+ * Run with: ./gradlew :benchmark:jmh -PjmhIncludes=GameNavigatorBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GameNavigatorBenchmark {
+
+    @Param({"100", "400"})
+    public int plies;
+
+    @Param({"8", "16", "32"})
+    public int interval;
+
+    private Board board;
+    private GameNavigator navigator;
+    private final int[] targets = new int[1024];
+    private int index;
+
+    @Setup
+    public void setUp() {
+
+        board = new Board();
+        navigator = new GameNavigator(board, new GameLogService(), interval);
+        MoveGenerator generator = new MoveGenerator(board);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        Random random = new Random(1);
+
+        // Games that end early are played again, until one is long enough
+        while (navigator.getLength() < plies) {
+            int count = generator.generateLegalMoves(moves);
+            if (count == 0) {
+                navigator.seek(0);
+                count = generator.generateLegalMoves(moves);
+            }
+            navigator.play(moves[random.nextInt(count)]);
+        }
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = random.nextInt(plies + 1);
+        }
+    }
+
+    @Benchmark
+    public long seek() {
+        navigator.seek(targets[index]);
+        index = (index + 1) & (targets.length - 1);
+        return board.getZobristKey();
+    }
+}
@@ -0,0 +1,118 @@
+package com.mrk.bsuir.benchmark;
+
+import com.mrk.bsuir.model.BitBoard;
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.model.Color;
+import com.mrk.bsuir.model.Piece;
+import com.mrk.bsuir.model.impl.King;
+import com.mrk.bsuir.service.MoveService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls made by GameActivity on every tap of the player. Every invocation takes the next cell or
+ * piece of the position in a cycle, so the score is the average over the whole board, including
+ * the taps that are not allowed.
+ * Run with: ./gradlew :benchmark:jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MoveServiceBenchmark {
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    private Board board;
+    private MoveService moveService;
+    private Color sideToMove;
+    private King king;
+
+    // Every own piece paired with every cell of the board
+    private int[] taps;
+    private Piece[] tapPieces;
+    private int tapIndex;
+
+    private int[] defenderSquares;
+    private int defenderIndex;
+
+    private int cellIndex;
+
+    @Setup
+    public void setUp() {
+
+        board = new Board();
+        moveService = new MoveService(board);
+        sideToMove = BenchmarkPositions.setUp(board, BenchmarkPositions.byName(position));
+        king = board.getKingOfThisColor(sideToMove);
+
+        long own = board.getBitBoard().getOccupancy(sideToMove.ordinal());
+        int pieceCount = Long.bitCount(own);
+        taps = new int[pieceCount * 64];
+        tapPieces = new Piece[pieceCount * 64];
+        defenderSquares = new int[pieceCount - 1];
+
+        int tapCount = 0;
+        int defenderCount = 0;
+        while (own != 0L) {
+            int square = Long.numberOfTrailingZeros(own);
+            own &= own - 1;
+            Piece piece = board.getPieceFromSquare(square);
+
+            for (int target = 0; target < 64; target++) {
+                taps[tapCount] = (square << 6) | target;
+                tapPieces[tapCount++] = piece;
+            }
+            if (piece != king) {
+                defenderSquares[defenderCount++] = square;
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean allowPieceMove() {
+
+        int index = tapIndex;
+        tapIndex = index + 1 == taps.length ? 0 : index + 1;
+
+        int start = taps[index] >>> 6;
+        int end = taps[index] & 63;
+        return moveService.allowPieceMove(BitBoard.squareX(start), BitBoard.squareY(start),
+                BitBoard.squareX(end), BitBoard.squareY(end), tapPieces[index]);
+    }
+
+    @Benchmark
+    public boolean isThisCellUnderAttack() {
+
+        int cell = cellIndex;
+        cellIndex = (cell + 1) & 63;
+
+        return moveService.isThisCellUnderAttack(BitBoard.squareX(cell), BitBoard.squareY(cell),
+                sideToMove);
+    }
+
+    @Benchmark
+    public boolean checkIfProtectingKing() {
+
+        int index = defenderIndex;
+        defenderIndex = index + 1 == defenderSquares.length ? 0 : index + 1;
+
+        int square = defenderSquares[index];
+        return moveService.checkIfProtectingKing(BitBoard.squareX(square),
+                BitBoard.squareY(square), king);
+    }
+
+    @Benchmark
+    public boolean checkCheckmate() {
+        return moveService.checkCheckmate(king);
+    }
+}
@@ -0,0 +1,69 @@
+package com.mrk.bsuir.benchmark;
+
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.service.ParallelSearch;
+import com.mrk.bsuir.service.SearchResult;
+import com.mrk.bsuir.service.TranspositionTable;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to depth of the search on 1, 2, 4 and 8 threads. The speedup of n threads is the score of
+ * 1 thread divided by the score of n threads. The nodes counter shows how much of it comes from
+ * more nodes per second and how much is lost on nodes searched twice by different threads.
+ * The numbers are only meaningful up to the amount of cores of the machine.
+ * Run with: ./gradlew :benchmark:jmh -PjmhIncludes=ParallelSearchBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelSearchBenchmark {
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    @Param({"5"})
+    public int depth;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ParallelSearch search;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    @Setup
+    public void setUp() {
+        Board board = new Board();
+        BenchmarkPositions.setUp(board, BenchmarkPositions.byName(position));
+        search = new ParallelSearch(board, new TranspositionTable(64), threads);
+    }
+
+    // Every search starts from an empty table, otherwise the later ones only read the results
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        search.getTable().clear();
+    }
+
+    @Benchmark
+    public SearchResult timeToDepth(Nodes counter) {
+        SearchResult result = search.search(depth, 0L, 0L);
+        counter.nodes += result.getNodes();
+        return result;
+    }
+}
@@ -0,0 +1,64 @@
+package com.mrk.bsuir.benchmark;
+
+import com.mrk.bsuir.model.Board;
+import com.mrk.bsuir.service.Search;
+import com.mrk.bsuir.service.SearchResult;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-depth search of every position. The score is the time of one search, and the nodes
+ * counter reports the speed of the engine in nodes per second, so both strength (depth reached
+ * in the time budget) and speed can be compared between versions.
+ * Run with: ./gradlew :benchmark:jmh -PjmhIncludes=SearchBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SearchBenchmark {
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    @Param({"4"})
+    public int depth;
+
+    private Search search;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    @Setup
+    public void setUp() {
+        Board board = new Board();
+        BenchmarkPositions.setUp(board, BenchmarkPositions.byName(position));
+        search = new Search(board);
+    }
+
+    // Every search starts from an empty table, otherwise the later ones only read the results
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        search.getTable().clear();
+    }
+
+    @Benchmark
+    public SearchResult fixedDepthSearch(Nodes counter) {
+        SearchResult result = search.search(depth, 0L, 0L);
+        counter.nodes += result.getNodes();
+        return result;
+    }
+}
@@ -0,0 +1,75 @@
+package com.mrk.bsuir.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Slider attacks from the magic tables against the same attacks calculated ray by ray, and the
+ * cost of filling the tables. The gc profiler reports the memory of the tables as the allocation
+ * of buildSliderTable. This class is in the package of Attacks to reach its package-private parts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AttacksBenchmark {
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    // Random occupancies with about a half of the board filled, like in the middlegame
+    private final long[] occupancies = new long[1024];
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        for (int i = 0; i < occupancies.length; i++) {
+            occupancies[i] = random.nextLong() & random.nextLong() | random.nextLong() & 0xFFFFL;
+        }
+    }
+
+    @Benchmark
+    public long magicRookAttacks() {
+        int i = next();
+        return Attacks.rookAttacks(i & 63, occupancies[i]);
+    }
+
+    @Benchmark
+    public long magicBishopAttacks() {
+        int i = next();
+        return Attacks.bishopAttacks(i & 63, occupancies[i]);
+    }
+
+    @Benchmark
+    public long rayRookAttacks() {
+        int i = next();
+        return Attacks.slidingAttacks(i & 63, occupancies[i], ROOK_DIRECTIONS);
+    }
+
+    @Benchmark
+    public long rayBishopAttacks() {
+        int i = next();
+        return Attacks.slidingAttacks(i & 63, occupancies[i], BISHOP_DIRECTIONS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long[] buildSliderTable() {
+        return Attacks.buildSliderTable(Attacks.sliderTableSize());
+    }
+
+    private int next() {
+        int i = index;
+        index = (i + 1) & (occupancies.length - 1);
+        return i;
+    }
+}